@@ -14,6 +14,9 @@
  * limitations under the License.
  */
 
+// Category of the unit tests run by benchmarkDebugUnitTest, see Benchmark in the test sources.
+val BENCHMARK_CATEGORY = "com.example.android.managedconfigurations.Benchmark"
+
 plugins {
     alias(libs.plugins.android.application)
     alias(libs.plugins.kotlin.android)
@@ -52,6 +55,51 @@ android {
     buildFeatures {
         viewBinding = true
     }
+    testOptions {
+        unitTests {
+            // Robolectric tests read the default values of the restrictions from resources.
+            isIncludeAndroidResources = true
+            // Benchmarks run on their own, see benchmarkDebugUnitTest.
+            all { test ->
+                test.useJUnit { excludeCategories(BENCHMARK_CATEGORY) }
+            }
+        }
+    }
+}
+
+// Runs the unit tests which hold time and memory to a budget, apart from the others so that
+// they don't compete with them for the machine. Part of check, so a regression fails the build.
+val benchmarkDebugUnitTest = tasks.register<Test>("benchmarkDebugUnitTest") {
+    description = "Runs the debug unit tests in the Benchmark category."
+    group = LifecycleBasePlugin.VERIFICATION_GROUP
+    val unitTest = tasks.named<Test>("testDebugUnitTest").get()
+    testClassesDirs = unitTest.testClassesDirs
+    classpath = unitTest.classpath
+    jvmArgs(unitTest.jvmArgs.orEmpty())
+    systemProperties(unitTest.systemProperties)
+    // Restrictions of 100,000 entries are resolved twice over.
+    maxHeapSize = "2g"
+    useJUnit { includeCategories(BENCHMARK_CATEGORY) }
+    mustRunAfter(unitTest)
+}
+
+tasks.named("check") {
+    dependsOn(benchmarkDebugUnitTest)
+}
+
+androidComponents {
+    onVariants { variant ->
+        val generateManagedConfig = tasks.register<GenerateManagedConfigTask>(
+            "generate${variant.name.replaceFirstChar { it.uppercase() }}ManagedConfig"
+        ) {
+            schema.set(layout.projectDirectory.file("src/main/res/xml/app_restrictions.xml"))
+            packageName.set(variant.namespace)
+        }
+        variant.sources.kotlin?.addGeneratedSourceDirectory(
+            generateManagedConfig,
+            GenerateManagedConfigTask::outputDirectory
+        )
+    }
 }
 
 dependencies {
@@ -60,11 +108,16 @@ dependencies {
     implementation(libs.material)
     implementation(libs.androidx.activity)
     implementation(libs.androidx.constraintlayout)
+    implementation(libs.androidx.recyclerview)
+    implementation(libs.androidx.lifecycle.runtime.ktx)
+    implementation(libs.kotlinx.coroutines.android)
     implementation(libs.jetbrains.kotlin.stdlib.jdk7)
     implementation(libs.androidx.enterprise.feedback)
     // For testing enterprise feedback in isolation
     testImplementation(libs.androidx.enterprise.feedback.testing)
     testImplementation(libs.junit)
+    testImplementation(libs.robolectric)
+    testImplementation(libs.kotlinx.coroutines.test)
     androidTestImplementation(libs.androidx.junit)
     androidTestImplementation(libs.androidx.espresso.core)
 }
@@ -0,0 +1,348 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.common.logger;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * {@link LogNode} which hands log data off to a single background thread, so that callers of
+ * {@link Log#println} only pay for copying the record into a slot of a preallocated ring buffer.
+ * The rest of the chain (writing to logcat, formatting, posting to the UI) runs on the consumer
+ * thread, in the order the records were accepted.
+ *
+ * <p>The ring buffer is a bounded, lock-free multi-producer queue. When it is full, the
+ * {@link OverflowPolicy} decides whether the oldest pending record is discarded, the new record
+ * is discarded, or the caller waits for room. Discarded records are counted, see
+ * {@link #getDroppedCount()}.</p>
+ *
+ * <p>The rest of the chain is replaced as a whole with {@link #swapNext(LogNode)}, so the
+ * consumer thread never sees it half linked.</p>
+ *
+ * <p>Unpublish the chain before calling {@link #shutdown()}, records received afterwards are
+ * discarded too. {@link #awaitTermination(long)} waits for the pending ones to be passed on,
+ * call it before closing the nodes further down the chain.</p>
+ */
+public class AsyncLogNode implements LogNode {
+
+    /**
+     * What to do with a new record when the ring buffer is full.
+     */
+    public enum OverflowPolicy {
+        /** Discard the oldest pending record to make room for the new one. */
+        DROP_OLDEST,
+        /** Discard the new record. */
+        DROP_NEWEST,
+        /** Wait until the consumer thread has made room. */
+        BLOCK
+    }
+
+    private static final String TAG = "AsyncLogNode";
+
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    // How long the consumer thread sleeps when it has nothing to do. Producers wake it up
+    // earlier, this only bounds the damage of a missed wake-up.
+    private static final long IDLE_PARK_NANOS = 100_000_000L;
+
+    // How long a producer backs off when the buffer is full and the policy is BLOCK.
+    private static final long BLOCK_PARK_NANOS = 50_000L;
+
+    // The entries of the ring buffer. A slot is only touched by the thread which currently owns
+    // it, ownership is handed over through mSequences. The records are owned by this node and
+    // never go back to the LogRecord pool.
+    private final LogRecord[] mSlots;
+    private final int mMask;
+    // For each slot, the position it is ready for: equal to the position when it can be written,
+    // position + 1 once it has been written and can be read.
+    private final AtomicLongArray mSequences;
+    // Next position to write to.
+    private final AtomicLong mTail = new AtomicLong();
+    // Next position to read from.
+    private final AtomicLong mHead = new AtomicLong();
+
+    private final AtomicLong mDroppedCount = new AtomicLong();
+    // Number of producers in println which may still write to the buffer. The consumer thread
+    // only stops once it is back to 0, after shutdown().
+    private final AtomicInteger mProducers = new AtomicInteger();
+    private final OverflowPolicy mOverflowPolicy;
+
+    // Only used by the consumer thread, to copy a record out of its slot before passing it on.
+    private final LogRecord mDrainRecord = new LogRecord();
+    private final Thread mConsumer;
+    private volatile boolean mConsumerWaiting;
+    private volatile boolean mRunning = true;
+
+    // For piping:  The next node to receive Log data after this one has done its work. Only ever
+    // replaced by a complete chain, which nobody links into afterwards.
+    private final AtomicReference<LogNode> mNext = new AtomicReference<>();
+
+    /**
+     * Creates a node with room for {@value #DEFAULT_CAPACITY} pending records, which drops the
+     * oldest record when full.
+     *
+     * @param next The next LogNode in the pipeline.
+     */
+    public AsyncLogNode(LogNode next) {
+        this(next, DEFAULT_CAPACITY, OverflowPolicy.DROP_OLDEST);
+    }
+
+    /**
+     * @param next The next LogNode in the pipeline.
+     * @param capacity Number of records which can be pending at once. Rounded up to a power of
+     *                 two.
+     * @param overflowPolicy What to do with new records when the buffer is full.
+     */
+    public AsyncLogNode(LogNode next, int capacity, OverflowPolicy overflowPolicy) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("capacity must be at least 2: " + capacity);
+        }
+        if (overflowPolicy == null) {
+            throw new NullPointerException("overflowPolicy == null");
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        mSlots = new LogRecord[size];
+        mSequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            mSlots[i] = new LogRecord();
+            mSequences.set(i, i);
+        }
+        mMask = size - 1;
+        mOverflowPolicy = overflowPolicy;
+        mNext.set(next);
+
+        mConsumer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                drainLoop();
+            }
+        }, TAG);
+        mConsumer.setDaemon(true);
+        mConsumer.start();
+    }
+
+    /**
+     * Returns the next LogNode in the chain.
+     */
+    public LogNode getNext() {
+        return mNext.get();
+    }
+
+    /**
+     * Replaces the rest of the chain in one step. Build the new chain in full before handing it
+     * over, it receives records as soon as this is called. Leave the nodes of the previous chain
+     * linked as they are, the consumer thread may still be passing a record through them.
+     *
+     * @param next The first node of the new chain, or null to drop records once queued.
+     * @return The first node of the previous chain.
+     */
+    public LogNode swapNext(LogNode next) {
+        return mNext.getAndSet(next);
+    }
+
+    /**
+     * Returns the number of records discarded because the buffer was full, or the node shut
+     * down.
+     */
+    public long getDroppedCount() {
+        return mDroppedCount.get();
+    }
+
+    /**
+     * Returns the number of records waiting for the consumer thread.
+     */
+    public int getPendingCount() {
+        return (int) Math.max(0, mTail.get() - mHead.get());
+    }
+
+    /**
+     * Stops the consumer thread once it has passed on all pending records. Records received after
+     * this call are discarded.
+     */
+    public void shutdown() {
+        mRunning = false;
+        LockSupport.unpark(mConsumer);
+    }
+
+    /**
+     * Waits for the consumer thread to pass on the pending records and stop, after
+     * {@link #shutdown()}.
+     *
+     * @param timeoutMillis How long to wait at most, 0 to wait for as long as it takes.
+     * @return Whether the consumer thread has stopped.
+     */
+    public boolean awaitTermination(long timeoutMillis) throws InterruptedException {
+        mConsumer.join(timeoutMillis);
+        return !mConsumer.isAlive();
+    }
+
+    /**
+     * Queues the log data for the consumer thread.
+     * @param priority Log level of the data being logged.  Verbose, Error, etc.
+     * @param tag Tag for for the log data.  Can be used to organize log statements.
+     * @param msg The actual message to be logged. The actual message to be logged.
+     * @param tr If an exception was thrown, this can be sent along for the logging facilities
+     *           to extract and print useful information.
+     */
+    @Override
+    public void println(int priority, String tag, String msg, Throwable tr) {
+        LogRecord record = LogRecord.obtain(priority, tag, msg, tr);
+        try {
+            println(record);
+        } finally {
+            record.recycle();
+        }
+    }
+
+    /**
+     * Copies the log data into the ring buffer for the consumer thread.
+     * @param record The log data. See {@link LogRecord}.
+     */
+    @Override
+    public void println(LogRecord record) {
+        // Registered before checking mRunning, so that the consumer thread waits for this record
+        // if it gets in before shutdown().
+        mProducers.incrementAndGet();
+        try {
+            if (!mRunning) {
+                mDroppedCount.incrementAndGet();
+                return;
+            }
+            while (!offer(record)) {
+                switch (mOverflowPolicy) {
+                    case DROP_OLDEST:
+                        if (poll(null)) {
+                            mDroppedCount.incrementAndGet();
+                        }
+                        break;
+                    case DROP_NEWEST:
+                        mDroppedCount.incrementAndGet();
+                        return;
+                    case BLOCK:
+                        LockSupport.unpark(mConsumer);
+                        LockSupport.parkNanos(this, BLOCK_PARK_NANOS);
+                        break;
+                }
+            }
+        } finally {
+            mProducers.decrementAndGet();
+        }
+        if (mConsumerWaiting) {
+            LockSupport.unpark(mConsumer);
+        }
+    }
+
+    /**
+     * Claims the slot at the tail and copies the record into it.
+     * @return false if the buffer is full.
+     */
+    private boolean offer(LogRecord record) {
+        long position = mTail.get();
+        while (true) {
+            int index = (int) position & mMask;
+            long available = mSequences.get(index) - position;
+            if (available == 0) {
+                if (mTail.compareAndSet(position, position + 1)) {
+                    mSlots[index].copyFrom(record);
+                    // Volatile write, so the wake-up check in println can't be reordered above it.
+                    mSequences.set(index, position + 1);
+                    return true;
+                }
+                position = mTail.get();
+            } else if (available < 0) {
+                return false;
+            } else {
+                position = mTail.get();
+            }
+        }
+    }
+
+    /**
+     * Claims the slot at the head and empties it.
+     * @param out Receives the record, or null to discard it.
+     * @return false if the buffer is empty.
+     */
+    private boolean poll(LogRecord out) {
+        long position = mHead.get();
+        while (true) {
+            int index = (int) position & mMask;
+            long available = mSequences.get(index) - (position + 1);
+            if (available == 0) {
+                if (mHead.compareAndSet(position, position + 1)) {
+                    LogRecord slot = mSlots[index];
+                    if (out != null) {
+                        out.copyFrom(slot);
+                    }
+                    slot.clear();
+                    mSequences.lazySet(index, position + mMask + 1);
+                    return true;
+                }
+                position = mHead.get();
+            } else if (available < 0) {
+                return false;
+            } else {
+                position = mHead.get();
+            }
+        }
+    }
+
+    private void drainLoop() {
+        final LogRecord record = mDrainRecord;
+        while (true) {
+            if (poll(record)) {
+                deliver(record);
+                continue;
+            }
+            if (!mRunning) {
+                // Producers which raced with shutdown() may still be filling slots, or be
+                // blocked waiting for room.
+                while (mProducers.get() > 0) {
+                    if (poll(record)) {
+                        deliver(record);
+                    } else {
+                        Thread.yield();
+                    }
+                }
+                while (poll(record)) {
+                    deliver(record);
+                }
+                return;
+            }
+            mConsumerWaiting = true;
+            if (mTail.get() == mHead.get() && mRunning) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+            mConsumerWaiting = false;
+        }
+    }
+
+    private void deliver(LogRecord record) {
+        LogNode next = mNext.get();
+        try {
+            if (next != null) {
+                next.println(record);
+            }
+        } catch (RuntimeException e) {
+            // Don't let a misbehaving node take the consumer thread, and all logging, down.
+            android.util.Log.e(TAG, "LogNode failed", e);
+        } finally {
+            record.clear();
+        }
+    }
+}
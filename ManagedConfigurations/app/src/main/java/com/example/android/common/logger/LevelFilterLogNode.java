@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.common.logger;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@link LogNode} filter which only passes on log data at or above a minimum priority. The
+ * minimum can be set for all tags and overridden for individual tags.
+ *
+ * <p>Once registered with {@link Log#setLevelFilter(LevelFilterLogNode)}, the same levels are
+ * checked by {@link Log#isLoggable(int, String)}, so that {@link Log#v}, {@link Log#d} and
+ * {@link Log#i} return straight away for levels nobody wants.</p>
+ */
+public class LevelFilterLogNode implements LogNode {
+
+    // For piping:  The next node to receive Log data after this one has done its work.
+    private volatile LogNode mNext;
+
+    // Settings are replaced rather than modified, so readers never need a lock.
+    private volatile int mDefaultPriority;
+    private volatile Map<String, Integer> mTagPriorities = Collections.emptyMap();
+    private volatile int mMinPriority;
+
+    /**
+     * @param defaultPriority Lowest priority passed on for tags without their own setting.
+     */
+    public LevelFilterLogNode(int defaultPriority) {
+        mDefaultPriority = defaultPriority;
+        mMinPriority = defaultPriority;
+    }
+
+    /**
+     * Takes the "next" LogNode as a parameter, to simplify chaining.
+     *
+     * @param next The next LogNode in the pipeline.
+     * @param defaultPriority Lowest priority passed on for tags without their own setting.
+     */
+    public LevelFilterLogNode(LogNode next, int defaultPriority) {
+        this(defaultPriority);
+        mNext = next;
+    }
+
+    /**
+     * Returns the next LogNode in the chain.
+     */
+    public LogNode getNext() {
+        return mNext;
+    }
+
+    /**
+     * Sets the LogNode data will be sent to.
+     */
+    public void setNext(LogNode node) {
+        mNext = node;
+    }
+
+    /**
+     * Sets the lowest priority passed on for tags without their own setting.
+     */
+    public synchronized void setDefaultPriority(int priority) {
+        mDefaultPriority = priority;
+        onPrioritiesChanged();
+    }
+
+    public int getDefaultPriority() {
+        return mDefaultPriority;
+    }
+
+    /**
+     * Sets the lowest priority passed on for one tag, overriding the default priority.
+     */
+    public synchronized void setTagPriority(String tag, int priority) {
+        HashMap<String, Integer> priorities = new HashMap<>(mTagPriorities);
+        priorities.put(tag, priority);
+        mTagPriorities = priorities;
+        onPrioritiesChanged();
+    }
+
+    /**
+     * Makes a tag use the default priority again.
+     */
+    public synchronized void clearTagPriority(String tag) {
+        if (mTagPriorities.containsKey(tag)) {
+            HashMap<String, Integer> priorities = new HashMap<>(mTagPriorities);
+            priorities.remove(tag);
+            mTagPriorities = priorities;
+            onPrioritiesChanged();
+        }
+    }
+
+    /**
+     * Returns the lowest priority passed on for any tag.
+     */
+    public int getMinPriority() {
+        return mMinPriority;
+    }
+
+    /**
+     * Returns whether log data with the given priority and tag would be passed on.
+     */
+    public boolean isLoggable(int priority, String tag) {
+        if (priority < mMinPriority) {
+            return false;
+        }
+        Integer tagPriority = tag == null ? null : mTagPriorities.get(tag);
+        return priority >= (tagPriority != null ? tagPriority : mDefaultPriority);
+    }
+
+    @Override
+    public void println(int priority, String tag, String msg, Throwable tr) {
+        LogNode next = mNext;
+        if (next != null && isLoggable(priority, tag)) {
+            next.println(priority, tag, msg, tr);
+        }
+    }
+
+    @Override
+    public void println(LogRecord record) {
+        LogNode next = mNext;
+        if (next != null && isLoggable(record.getPriority(), record.getTag())) {
+            next.println(record);
+        }
+    }
+
+    private void onPrioritiesChanged() {
+        int min = mDefaultPriority;
+        for (Integer priority : mTagPriorities.values()) {
+            min = Math.min(min, priority);
+        }
+        mMinPriority = min;
+        Log.onLevelsChanged(this);
+    }
+}
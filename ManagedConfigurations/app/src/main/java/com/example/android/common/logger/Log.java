@@ -15,6 +15,8 @@
  */
 package com.example.android.common.logger;
 
+import java.util.concurrent.atomic.AtomicReference;
+
 /**
  * Helper class for a list (or tree) of LoggerNodes.
  *
@@ -22,6 +24,12 @@ package com.example.android.common.logger;
  * an instance of it can function as a drop-in replacement for {@link android.util.Log}.
  * Most of the methods in this class server only to map a method call in Log to its equivalent
  * in LogNode.</p>
+ *
+ * <p>Log may be called from any thread while the topology is being changed. Build a new chain
+ * completely, from its last node to its first, before publishing it with
+ * {@link #setLogNode(LogNode)} or {@link #compareAndSetLogNode(LogNode, LogNode)}: each call to
+ * Log then goes through either the old chain or the new one, never a partly linked one, and
+ * never waits for a lock.</p>
  */
 public class Log {
     // Grabbing the native values from Android's native logging facilities,
@@ -35,20 +43,76 @@ public class Log {
     public static final int ASSERT = android.util.Log.ASSERT;
 
     // Stores the beginning of the LogNode topology.
-    private static LogNode mLogNode;
+    private static final AtomicReference<LogNode> sLogNode = new AtomicReference<>();
+
+    // Levels checked by isLoggable. sMinPriority caches the filter's lowest priority, so that
+    // disabled levels are turned away with a single read.
+    private static final Object sLevelLock = new Object();
+    private static volatile LevelFilterLogNode sLevelFilter;
+    private static volatile int sMinPriority = Integer.MIN_VALUE;
 
     /**
      * Returns the next LogNode in the linked list.
      */
     public static LogNode getLogNode() {
-        return mLogNode;
+        return sLogNode.get();
     }
 
     /**
-     * Sets the LogNode data will be sent to.
+     * Sets the LogNode data will be sent to. The chain starting at the node should be complete,
+     * it is used by other threads as soon as this method returns.
      */
     public static void setLogNode(LogNode node) {
-        mLogNode = node;
+        sLogNode.set(node);
+    }
+
+    /**
+     * Sets the LogNode data will be sent to, if the current one is {@code expect}. Lets
+     * concurrent callers swap the topology without losing each other's changes.
+     *
+     * @return Whether the LogNode was set.
+     */
+    public static boolean compareAndSetLogNode(LogNode expect, LogNode update) {
+        return sLogNode.compareAndSet(expect, update);
+    }
+
+    /**
+     * Sets the filter whose levels are checked by {@link #isLoggable(int, String)}. The filter
+     * still has to be part of the LogNode topology to filter the log data itself.
+     *
+     * @param filter The filter, or null to make every level loggable.
+     */
+    public static void setLevelFilter(LevelFilterLogNode filter) {
+        synchronized (sLevelLock) {
+            sLevelFilter = filter;
+            sMinPriority = filter == null ? Integer.MIN_VALUE : filter.getMinPriority();
+        }
+    }
+
+    /**
+     * Called by a filter whenever its levels change.
+     */
+    static void onLevelsChanged(LevelFilterLogNode filter) {
+        synchronized (sLevelLock) {
+            if (sLevelFilter == filter) {
+                sMinPriority = filter.getMinPriority();
+            }
+        }
+    }
+
+    /**
+     * Returns whether log data with the given priority and tag would get past the level filter.
+     * Use it to skip building messages which would be thrown away.
+     *
+     * @param priority Log level of the data being logged. Verbose, Error, etc.
+     * @param tag Tag for for the log data. Can be used to organize log statements.
+     */
+    public static boolean isLoggable(int priority, String tag) {
+        if (priority < sMinPriority) {
+            return false;
+        }
+        LevelFilterLogNode filter = sLevelFilter;
+        return filter == null || filter.isLoggable(priority, tag);
     }
 
     /**
@@ -62,8 +126,9 @@ public class Log {
      *           to extract and print useful information.
      */
     public static void println(int priority, String tag, String msg, Throwable tr) {
-        if (mLogNode != null) {
-            mLogNode.println(priority, tag, msg, tr);
+        LogNode node = sLogNode.get();
+        if (node != null) {
+            dispatch(node, LogRecord.obtain(priority, tag, msg, tr));
         }
     }
 
@@ -79,6 +144,53 @@ public class Log {
         println(priority, tag, msg, null);
     }
 
+    /**
+     * Instructs the LogNode to print a message built from a format string and arguments, if
+     * {@link #isLoggable(int, String)}. The message is only built if a LogNode reads it, possibly
+     * on another thread after this call has returned, so the arguments must not be changed
+     * afterwards.
+     *
+     * @param priority Log level of the data being logged. Verbose, Error, etc.
+     * @param tag Tag for for the log data. Can be used to organize log statements.
+     * @param format The message, as a {@link java.util.Formatter} format string.
+     * @param args The arguments referenced by the format string.
+     */
+    public static void printf(int priority, String tag, String format, Object... args) {
+        LogNode node = sLogNode.get();
+        if (node != null && isLoggable(priority, tag)) {
+            LogRecord record = LogRecord.obtain(priority, tag, null, null);
+            record.setMessageFormat(format, args);
+            dispatch(node, record);
+        }
+    }
+
+    /**
+     * Instructs the LogNode to print a message built by the supplier, if
+     * {@link #isLoggable(int, String)}. The message is only built if a LogNode reads it, possibly
+     * on another thread after this call has returned. Named apart from println, so that a null
+     * message stays a String for Java callers.
+     *
+     * @param priority Log level of the data being logged. Verbose, Error, etc.
+     * @param tag Tag for for the log data. Can be used to organize log statements.
+     * @param msg Builds the actual message to be logged.
+     */
+    public static void printlnLazy(int priority, String tag, MessageSupplier msg) {
+        LogNode node = sLogNode.get();
+        if (node != null && isLoggable(priority, tag)) {
+            LogRecord record = LogRecord.obtain(priority, tag, null, null);
+            record.setMessageSupplier(msg);
+            dispatch(node, record);
+        }
+    }
+
+    private static void dispatch(LogNode node, LogRecord record) {
+        try {
+            node.println(record);
+        } finally {
+            record.recycle();
+        }
+    }
+
    /**
      * Prints a message at VERBOSE priority.
      *
@@ -88,7 +200,9 @@ public class Log {
      *           to extract and print useful information.
      */
     public static void v(String tag, String msg, Throwable tr) {
-        println(VERBOSE, tag, msg, tr);
+        if (isLoggable(VERBOSE, tag)) {
+            println(VERBOSE, tag, msg, tr);
+        }
     }
 
     /**
@@ -111,7 +225,9 @@ public class Log {
      *           to extract and print useful information.
      */
     public static void d(String tag, String msg, Throwable tr) {
-        println(DEBUG, tag, msg, tr);
+        if (isLoggable(DEBUG, tag)) {
+            println(DEBUG, tag, msg, tr);
+        }
     }
 
     /**
@@ -133,7 +249,9 @@ public class Log {
      *           to extract and print useful information.
      */
     public static void i(String tag, String msg, Throwable tr) {
-        println(INFO, tag, msg, tr);
+        if (isLoggable(INFO, tag)) {
+            println(INFO, tag, msg, tr);
+        }
     }
 
     /**
@@ -155,7 +273,9 @@ public class Log {
      *           to extract and print useful information.
      */
     public static void w(String tag, String msg, Throwable tr) {
-        println(WARN, tag, msg, tr);
+        if (isLoggable(WARN, tag)) {
+            println(WARN, tag, msg, tr);
+        }
     }
 
     /**
@@ -188,7 +308,9 @@ public class Log {
      *           to extract and print useful information.
      */
     public static void e(String tag, String msg, Throwable tr) {
-        println(ERROR, tag, msg, tr);
+        if (isLoggable(ERROR, tag)) {
+            println(ERROR, tag, msg, tr);
+        }
     }
 
     /**
@@ -210,7 +332,9 @@ public class Log {
      *           to extract and print useful information.
      */
     public static void wtf(String tag, String msg, Throwable tr) {
-        println(ASSERT, tag, msg, tr);
+        if (isLoggable(ASSERT, tag)) {
+            println(ASSERT, tag, msg, tr);
+        }
     }
 
     /**
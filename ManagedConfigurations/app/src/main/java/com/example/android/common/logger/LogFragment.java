@@ -17,85 +17,46 @@
 
 package com.example.android.common.logger;
 
-import android.graphics.Typeface;
-import android.os.Build;
 import android.os.Bundle;
 import androidx.fragment.app.Fragment;
-import android.text.Editable;
-import android.text.TextWatcher;
-import android.view.Gravity;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.ScrollView;
 
 /**
- * Simple fraggment which contains a LogView and uses is to output log data it receives
+ * Simple fraggment which contains a LogListView and uses is to output log data it receives
  * through the LogNode interface.
  */
 public class LogFragment extends Fragment {
 
-    private LogView mLogView;
-    private ScrollView mScrollView;
+    private LogListView mLogView;
 
     public LogFragment() {}
 
-    @SuppressWarnings("deprecation")
     public View inflateViews() {
-        mScrollView = new ScrollView(getActivity());
-        ViewGroup.LayoutParams scrollParams = new ViewGroup.LayoutParams(
+        mLogView = new LogListView(getActivity());
+        ViewGroup.LayoutParams logParams = new ViewGroup.LayoutParams(
                 ViewGroup.LayoutParams.MATCH_PARENT,
                 ViewGroup.LayoutParams.MATCH_PARENT);
-        mScrollView.setLayoutParams(scrollParams);
-
-        mLogView = new LogView(getActivity());
-        ViewGroup.LayoutParams logParams = new ViewGroup.LayoutParams(scrollParams);
-        logParams.height = ViewGroup.LayoutParams.WRAP_CONTENT;
         mLogView.setLayoutParams(logParams);
-        mLogView.setClickable(true);
-        mLogView.setFocusable(true);
-        mLogView.setTypeface(Typeface.MONOSPACE);
 
         // Want to set padding as 16 dips, setPadding takes pixels.  Hooray math!
         int paddingDips = 16;
         double scale = getResources().getDisplayMetrics().density;
         int paddingPixels = (int) ((paddingDips * (scale)) + .5);
         mLogView.setPadding(paddingPixels, paddingPixels, paddingPixels, paddingPixels);
-        mLogView.setCompoundDrawablePadding(paddingPixels);
-
-        mLogView.setGravity(Gravity.BOTTOM);
-        if (android.os.Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-            mLogView.setTextAppearance(android.R.style.TextAppearance_Holo_Medium);
-        } else {
-            mLogView.setTextAppearance(getActivity(), android.R.style.TextAppearance_Holo_Medium);
-        }
+        mLogView.setClipToPadding(false);
 
-        mScrollView.addView(mLogView);
-        return mScrollView;
+        return mLogView;
     }
 
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container,
                              Bundle savedInstanceState) {
-
-        View result = inflateViews();
-
-        mLogView.addTextChangedListener(new TextWatcher() {
-            @Override
-            public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
-
-            @Override
-            public void onTextChanged(CharSequence s, int start, int before, int count) {}
-
-            @Override
-            public void afterTextChanged(Editable s) {
-                mScrollView.fullScroll(ScrollView.FOCUS_DOWN);
-            }
-        });
-        return result;
+        return inflateViews();
     }
 
-    public LogView getLogView() {
+    public LogListView getLogView() {
         return mLogView;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.common.logger;
+
+/**
+ * Circular buffer of log lines, capped both in number of lines and in total size. Adding a line
+ * to a full buffer evicts the oldest lines. Not thread safe.
+ */
+public class LogLineBuffer {
+
+    private final String[] mLines;
+    private final long mMaxBytes;
+    // Index of the oldest line.
+    private int mStart;
+    private int mSize;
+    private long mBytes;
+
+    /**
+     * @param maxLines Maximum number of lines kept.
+     * @param maxBytes Maximum size of the lines kept, counting two bytes per char.
+     */
+    public LogLineBuffer(int maxLines, long maxBytes) {
+        if (maxLines < 1) {
+            throw new IllegalArgumentException("maxLines must be positive: " + maxLines);
+        }
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("maxBytes must be positive: " + maxBytes);
+        }
+        mLines = new String[maxLines];
+        mMaxBytes = maxBytes;
+    }
+
+    /**
+     * Adds a line after the newest one.
+     *
+     * @return The number of lines evicted from the start of the buffer to make room.
+     */
+    public int add(String line) {
+        int evicted = 0;
+        long bytes = sizeOf(line);
+        while (mSize > 0 && (mSize == mLines.length || mBytes + bytes > mMaxBytes)) {
+            removeOldest();
+            evicted++;
+        }
+        mLines[(mStart + mSize) % mLines.length] = line;
+        mSize++;
+        mBytes += bytes;
+        return evicted;
+    }
+
+    /**
+     * Returns the line at the given position, 0 being the oldest line.
+     */
+    public String get(int position) {
+        if (position < 0 || position >= mSize) {
+            throw new IndexOutOfBoundsException("position " + position + ", size " + mSize);
+        }
+        return mLines[(mStart + position) % mLines.length];
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Returns the size of the lines kept, counting two bytes per char.
+     */
+    public long getBytes() {
+        return mBytes;
+    }
+
+    public void clear() {
+        while (mSize > 0) {
+            removeOldest();
+        }
+        mStart = 0;
+    }
+
+    private void removeOldest() {
+        mBytes -= sizeOf(mLines[mStart]);
+        mLines[mStart] = null;
+        mStart = (mStart + 1) % mLines.length;
+        mSize--;
+    }
+
+    private static long sizeOf(String line) {
+        return 2L * line.length();
+    }
+}
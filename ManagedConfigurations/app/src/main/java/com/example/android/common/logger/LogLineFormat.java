@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.common.logger;
+
+/**
+ * Formats log data as one line of on-screen text, shared by the views which display log data.
+ */
+final class LogLineFormat {
+
+    private static final String DELIMITER = "\t";
+
+    private LogLineFormat() {}
+
+    /**
+     * Returns the priority as readable text, or null if it isn't one of the known levels.
+     */
+    static String priorityName(int priority) {
+        switch (priority) {
+            case android.util.Log.VERBOSE:
+                return "VERBOSE";
+            case android.util.Log.DEBUG:
+                return "DEBUG";
+            case android.util.Log.INFO:
+                return "INFO";
+            case android.util.Log.WARN:
+                return "WARN";
+            case android.util.Log.ERROR:
+                return "ERROR";
+            case android.util.Log.ASSERT:
+                return "ASSERT";
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Takes the priority, tag, message, and exception of the record, and concatenates them as
+     * necessary into one usable line of text.
+     *
+     * @param out StringBuilder to append the line to.
+     * @param record The log data.
+     */
+    static void appendLine(StringBuilder out, LogRecord record) {
+        appendIfNotNull(out, priorityName(record.getPriority()));
+        appendIfNotNull(out, record.getTag());
+        appendIfNotNull(out, record.getMessage());
+        appendIfNotNull(out, record.getThrowableString());
+    }
+
+    /** Takes a string and adds to it, with a separator, if the bit to be added isn't null. Since
+     * the logger takes so many arguments that might be null, this method helps cut out some of the
+     * agonizing tedium of writing the same 3 lines over and over.
+     * @param source StringBuilder containing the text to append to.
+     * @param addStr The String to append
+     */
+    private static void appendIfNotNull(StringBuilder source, CharSequence addStr) {
+        if (addStr != null) {
+            source.append(addStr);
+            if (addStr.length() != 0) {
+                source.append(DELIMITER);
+            }
+        }
+    }
+}
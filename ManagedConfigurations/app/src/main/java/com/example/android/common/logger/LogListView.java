@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.common.logger;
+
+import android.content.Context;
+import android.graphics.Typeface;
+import android.util.AttributeSet;
+import android.view.Choreographer;
+import android.view.ViewGroup;
+import android.widget.TextView;
+import androidx.annotation.NonNull;
+import androidx.core.widget.TextViewCompat;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayList;
+
+/**
+ * List which is used to output log data received through the LogNode interface, one row per log
+ * record. Unlike {@link LogView}, only the most recent lines are kept (see
+ * {@link #setLimits(int, long)}) and only the rows on screen are laid out, so the cost of
+ * displaying the log doesn't grow with the length of the session.
+ *
+ * <p>Lines are collected as they arrive and added to the list once per display frame. The list
+ * follows the newest line unless it has been scrolled up.</p>
+ */
+public class LogListView extends RecyclerView implements LogNode {
+
+    private static final int DEFAULT_MAX_LINES = 1000;
+    private static final long DEFAULT_MAX_BYTES = 256 * 1024;
+
+    // The next LogNode in the chain.
+    private volatile LogNode mNext;
+
+    // Only touched on the UI thread.
+    private LogLineBuffer mLines = new LogLineBuffer(DEFAULT_MAX_LINES, DEFAULT_MAX_BYTES);
+    private final LineAdapter mAdapter = new LineAdapter();
+
+    // Choreographer of the UI thread the view was created on. Posting to it is thread safe.
+    private final Choreographer mChoreographer = Choreographer.getInstance();
+
+    // Lines waiting to be displayed, filled in by any thread. Swapped with mDisplaying on the UI
+    // thread.
+    private final Object mPendingLock = new Object();
+    private final StringBuilder mFormatBuffer = new StringBuilder();
+    private ArrayList<String> mPending = new ArrayList<>();
+    private ArrayList<String> mDisplaying = new ArrayList<>();
+    private boolean mAppendPosted;
+
+    private final Choreographer.FrameCallback mAppendPending = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            ArrayList<String> lines;
+            synchronized (mPendingLock) {
+                lines = mPending;
+                mPending = mDisplaying;
+                mDisplaying = lines;
+                mAppendPosted = false;
+            }
+            appendLines(lines);
+            lines.clear();
+        }
+    };
+
+    public LogListView(Context context) {
+        this(context, null);
+    }
+
+    public LogListView(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public LogListView(Context context, AttributeSet attrs, int defStyle) {
+        super(context, attrs, defStyle);
+        LinearLayoutManager layoutManager = new LinearLayoutManager(context);
+        layoutManager.setStackFromEnd(true);
+        setLayoutManager(layoutManager);
+        setAdapter(mAdapter);
+    }
+
+    /**
+     * Sets how much of the log is kept. Lines already displayed are dropped.
+     *
+     * @param maxLines Maximum number of lines kept.
+     * @param maxBytes Maximum size of the lines kept, counting two bytes per char.
+     */
+    public void setLimits(int maxLines, long maxBytes) {
+        mLines = new LogLineBuffer(maxLines, maxBytes);
+        mAdapter.notifyDataSetChanged();
+    }
+
+    /**
+     * Formats the log data and prints it out to the LogListView.
+     * @param priority Log level of the data being logged.  Verbose, Error, etc.
+     * @param tag Tag for for the log data.  Can be used to organize log statements.
+     * @param msg The actual message to be logged. The actual message to be logged.
+     * @param tr If an exception was thrown, this can be sent along for the logging facilities
+     *           to extract and print useful information.
+     */
+    @Override
+    public void println(int priority, String tag, String msg, Throwable tr) {
+        LogRecord record = LogRecord.obtain(priority, tag, msg, tr);
+        try {
+            println(record);
+        } finally {
+            record.recycle();
+        }
+    }
+
+    /**
+     * Formats the log data and prints it out to the LogListView.
+     * @param record The log data. See {@link LogRecord}.
+     */
+    @Override
+    public void println(LogRecord record) {
+        boolean post;
+        synchronized (mPendingLock) {
+            mFormatBuffer.setLength(0);
+            LogLineFormat.appendLine(mFormatBuffer, record);
+            mPending.add(mFormatBuffer.toString());
+            post = !mAppendPosted;
+            mAppendPosted = true;
+        }
+
+        // In case this was originally called from an AsyncTask or some other off-UI thread,
+        // make sure the update occurs within the UI thread, at the start of the next frame.
+        if (post) {
+            mChoreographer.postFrameCallback(mAppendPending);
+        }
+
+        LogNode next = mNext;
+        if (next != null) {
+            next.println(record);
+        }
+    }
+
+    public LogNode getNext() {
+        return mNext;
+    }
+
+    public void setNext(LogNode node) {
+        mNext = node;
+    }
+
+    private void appendLines(ArrayList<String> lines) {
+        if (lines.isEmpty()) {
+            return;
+        }
+        boolean following = !canScrollVertically(1);
+        int oldSize = mLines.size();
+        int evicted = 0;
+        for (int i = 0, n = lines.size(); i < n; i++) {
+            evicted += mLines.add(lines.get(i));
+        }
+        // Lines evicted beyond the old size were added and evicted within this batch.
+        int removed = Math.min(evicted, oldSize);
+        int inserted = mLines.size() - (oldSize - removed);
+        if (removed > 0) {
+            mAdapter.notifyItemRangeRemoved(0, removed);
+        }
+        if (inserted > 0) {
+            mAdapter.notifyItemRangeInserted(oldSize - removed, inserted);
+        }
+        if (following) {
+            scrollToPosition(mLines.size() - 1);
+        }
+    }
+
+    private static final class LineHolder extends ViewHolder {
+        final TextView mText;
+
+        LineHolder(TextView text) {
+            super(text);
+            mText = text;
+        }
+    }
+
+    private final class LineAdapter extends Adapter<LineHolder> {
+
+        @NonNull
+        @Override
+        public LineHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+            TextView text = new TextView(parent.getContext());
+            text.setLayoutParams(new LayoutParams(
+                    ViewGroup.LayoutParams.MATCH_PARENT,
+                    ViewGroup.LayoutParams.WRAP_CONTENT));
+            TextViewCompat.setTextAppearance(text, android.R.style.TextAppearance_Holo_Medium);
+            text.setTypeface(Typeface.MONOSPACE);
+            return new LineHolder(text);
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull LineHolder holder, int position) {
+            holder.mText.setText(mLines.get(position));
+        }
+
+        @Override
+        public int getItemCount() {
+            return mLines.size();
+        }
+    }
+}
@@ -36,4 +36,19 @@ public interface LogNode {
      */
     public void println(int priority, String tag, String msg, Throwable tr);
 
+    /**
+     * Instructs first LogNode in the list to print the log data held by the record. Nodes which
+     * pass log data along should pass the record itself on, rather than its contents, so no
+     * garbage is created on the way down the chain.
+     *
+     * <p>The record belongs to the caller and is recycled once the call returns.</p>
+     *
+     * @param record The log data. See {@link LogRecord}.
+     */
+    public default void println(LogRecord record) {
+        CharSequence msg = record.getMessage();
+        println(record.getPriority(), record.getTag(), msg == null ? null : msg.toString(),
+                record.getThrowable());
+    }
+
 }
@@ -0,0 +1,265 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.common.logger;
+
+import java.util.Formatter;
+
+/**
+ * One piece of log data travelling down the LogNode chain.
+ *
+ * <p>Records are pooled, in the same way as {@link android.os.Message}: get one with
+ * {@link #obtain()} and hand it back with {@link #recycle()} once the last node is done with it.
+ * {@link Log#println} takes care of both, so nodes only need to pass the record they were given
+ * on to the next node. Nodes may modify the record on its way down, the nodes after them see
+ * the modified data.</p>
+ *
+ * <p>A node which needs to keep the data around after {@link LogNode#println(LogRecord)}
+ * returns has to copy it, see {@link #copyFrom(LogRecord)}.</p>
+ *
+ * <p>The message can be given as a format string and arguments, or as a
+ * {@link MessageSupplier}. It is then only built when a node first calls
+ * {@link #getMessage()}, into a buffer owned by the record, and never more than once.</p>
+ */
+public final class LogRecord {
+
+    private static final int MAX_POOL_SIZE = 50;
+
+    private static final Object sPoolSync = new Object();
+    private static LogRecord sPool;
+    private static int sPoolSize = 0;
+
+    private int mPriority;
+    private String mTag;
+    private CharSequence mMessage;
+    private Throwable mThrowable;
+    // Text of mThrowable, rendered the first time a node asks for it.
+    private String mThrowableString;
+
+    // The message, until somebody asks for it.
+    private String mFormat;
+    private Object[] mFormatArgs;
+    private MessageSupplier mSupplier;
+
+    // Backs the message when it is formatted or edited, reused for the lifetime of the record.
+    private final StringBuilder mMessageBuffer = new StringBuilder();
+    // Writes into mMessageBuffer, created the first time the record formats a message.
+    private Formatter mFormatter;
+
+    // Next record in the pool.
+    private LogRecord mNextInPool;
+
+    /**
+     * Use {@link #obtain()} rather than creating records directly, unless the record is owned
+     * by a node for its whole lifetime.
+     */
+    public LogRecord() {
+    }
+
+    /**
+     * Returns a cleared record from the pool, or a new one if the pool is empty.
+     */
+    public static LogRecord obtain() {
+        synchronized (sPoolSync) {
+            if (sPool != null) {
+                LogRecord record = sPool;
+                sPool = record.mNextInPool;
+                record.mNextInPool = null;
+                sPoolSize--;
+                return record;
+            }
+        }
+        return new LogRecord();
+    }
+
+    /**
+     * Returns a record from the pool, filled in with the given data.
+     *
+     * @param priority Log level of the data being logged. Verbose, Error, etc.
+     * @param tag Tag for for the log data. Can be used to organize log statements.
+     * @param msg The actual message to be logged.
+     * @param tr If an exception was thrown, this can be sent along for the logging facilities
+     *           to extract and print useful information.
+     */
+    public static LogRecord obtain(int priority, String tag, CharSequence msg, Throwable tr) {
+        LogRecord record = obtain();
+        record.mPriority = priority;
+        record.mTag = tag;
+        record.mMessage = msg;
+        record.mThrowable = tr;
+        return record;
+    }
+
+    /**
+     * Clears the record and returns it to the pool. The record must not be used afterwards.
+     */
+    public void recycle() {
+        clear();
+        synchronized (sPoolSync) {
+            if (sPoolSize < MAX_POOL_SIZE) {
+                mNextInPool = sPool;
+                sPool = this;
+                sPoolSize++;
+            }
+        }
+    }
+
+    /**
+     * Drops all references held by the record, keeping its buffers for reuse.
+     */
+    public void clear() {
+        mPriority = 0;
+        mTag = null;
+        mMessage = null;
+        mThrowable = null;
+        mThrowableString = null;
+        mFormat = null;
+        mFormatArgs = null;
+        mSupplier = null;
+        mMessageBuffer.setLength(0);
+    }
+
+    /**
+     * Makes this record a copy of another one. The message text is copied into this record's own
+     * buffer unless it is immutable, so the other record can be recycled afterwards. A message
+     * which hasn't been built yet is copied unbuilt.
+     */
+    public void copyFrom(LogRecord other) {
+        if (other == this) {
+            return;
+        }
+        mPriority = other.mPriority;
+        mTag = other.mTag;
+        mThrowable = other.mThrowable;
+        mThrowableString = other.mThrowableString;
+        mFormat = other.mFormat;
+        mFormatArgs = other.mFormatArgs;
+        mSupplier = other.mSupplier;
+        CharSequence msg = other.mMessage;
+        if (msg == null || msg instanceof String) {
+            mMessage = msg;
+        } else {
+            mMessageBuffer.setLength(0);
+            mMessageBuffer.append(msg);
+            mMessage = mMessageBuffer;
+        }
+    }
+
+    public int getPriority() {
+        return mPriority;
+    }
+
+    public void setPriority(int priority) {
+        mPriority = priority;
+    }
+
+    public String getTag() {
+        return mTag;
+    }
+
+    public void setTag(String tag) {
+        mTag = tag;
+    }
+
+    /**
+     * Returns the message, building it first if it was given as a format or a supplier. The
+     * message may be backed by a buffer that is reused once the record has been recycled. Call
+     * {@code toString()} on it to keep it.
+     */
+    public CharSequence getMessage() {
+        if (mFormat != null) {
+            String format = mFormat;
+            Object[] args = mFormatArgs;
+            mFormat = null;
+            mFormatArgs = null;
+            if (mFormatter == null) {
+                mFormatter = new Formatter(mMessageBuffer);
+            }
+            mMessageBuffer.setLength(0);
+            mFormatter.format(format, args);
+            mMessage = mMessageBuffer;
+        } else if (mSupplier != null) {
+            MessageSupplier supplier = mSupplier;
+            mSupplier = null;
+            mMessage = supplier.get();
+        }
+        return mMessage;
+    }
+
+    public void setMessage(CharSequence msg) {
+        mMessage = msg;
+        mFormat = null;
+        mFormatArgs = null;
+        mSupplier = null;
+    }
+
+    /**
+     * Sets the message to be built with {@link String#format(String, Object...)} rules, the first
+     * time it is needed.
+     */
+    public void setMessageFormat(String format, Object... args) {
+        setMessage(null);
+        mFormat = format;
+        mFormatArgs = args;
+    }
+
+    /**
+     * Sets the message to be built by the supplier, the first time it is needed.
+     */
+    public void setMessageSupplier(MessageSupplier supplier) {
+        setMessage(null);
+        mSupplier = supplier;
+    }
+
+    /**
+     * Returns a buffer holding the current message, for nodes that want to change the text in
+     * place. The buffer becomes the record's message.
+     */
+    public StringBuilder editMessage() {
+        CharSequence msg = getMessage();
+        if (msg != mMessageBuffer) {
+            mMessageBuffer.setLength(0);
+            if (msg != null) {
+                mMessageBuffer.append(msg);
+            }
+            mMessage = mMessageBuffer;
+        }
+        return mMessageBuffer;
+    }
+
+    public Throwable getThrowable() {
+        return mThrowable;
+    }
+
+    public void setThrowable(Throwable tr) {
+        mThrowable = tr;
+        mThrowableString = null;
+    }
+
+    /**
+     * Returns the stack trace of the throwable as text, or null if there is no throwable. The
+     * text is rendered by {@link ThrowableRenderer#getDefault()} the first time it is asked for,
+     * and shared by all the nodes the record goes through.
+     */
+    public String getThrowableString() {
+        if (mThrowable == null) {
+            return null;
+        }
+        if (mThrowableString == null) {
+            mThrowableString = ThrowableRenderer.getDefault().render(mThrowable);
+        }
+        return mThrowableString;
+    }
+}
@@ -15,12 +15,14 @@
  */
 package com.example.android.common.logger;
 
-import android.app.Activity;
 import android.content.Context;
 import android.util.AttributeSet;
+import android.view.Choreographer;
 import androidx.appcompat.widget.AppCompatTextView;
 
 /** Simple TextView which is used to output log data received through the LogNode interface.
+ * Lines are collected as they arrive and added to the text once per display frame, so a burst of
+ * log data costs one relayout rather than one per line.
 */
 public class LogView extends AppCompatTextView implements LogNode {
 
@@ -46,62 +48,40 @@ public class LogView extends AppCompatTextView implements LogNode {
      */
     @Override
     public void println(int priority, String tag, String msg, Throwable tr) {
-
-        
-        String priorityStr = null;
-
-        // For the purposes of this View, we want to print the priority as readable text.
-        switch(priority) {
-            case android.util.Log.VERBOSE:
-                priorityStr = "VERBOSE";
-                break;
-            case android.util.Log.DEBUG:
-                priorityStr = "DEBUG";
-                break;
-            case android.util.Log.INFO:
-                priorityStr = "INFO";
-                break;
-            case android.util.Log.WARN:
-                priorityStr = "WARN";
-                break;
-            case android.util.Log.ERROR:
-                priorityStr = "ERROR";
-                break;
-            case android.util.Log.ASSERT:
-                priorityStr = "ASSERT";
-                break;
-            default:
-                break;
+        LogRecord record = LogRecord.obtain(priority, tag, msg, tr);
+        try {
+            println(record);
+        } finally {
+            record.recycle();
         }
+    }
 
-        // Handily, the Log class has a facility for converting a stack trace into a usable string.
-        String exceptionStr = null;
-        if (tr != null) {
-            exceptionStr = android.util.Log.getStackTraceString(tr);
+    /**
+     * Formats the log data and prints it out to the LogView.
+     * @param record The log data. See {@link LogRecord}.
+     */
+    @Override
+    public void println(LogRecord record) {
+        // Format the record into one usable line of text, queued up behind the lines not yet
+        // displayed.
+        boolean post;
+        synchronized (mPendingLock) {
+            mPending.append('\n');
+            LogLineFormat.appendLine(mPending, record);
+            post = !mAppendPosted;
+            mAppendPosted = true;
         }
 
-        // Take the priority, tag, message, and exception, and concatenate as necessary
-        // into one usable line of text.
-        final StringBuilder outputBuilder = new StringBuilder();
-
-        String delimiter = "\t";
-        appendIfNotNull(outputBuilder, priorityStr, delimiter);
-        appendIfNotNull(outputBuilder, tag, delimiter);
-        appendIfNotNull(outputBuilder, msg, delimiter);
-        appendIfNotNull(outputBuilder, exceptionStr, delimiter);
-
         // In case this was originally called from an AsyncTask or some other off-UI thread,
-        // make sure the update occurs within the UI thread.
-        ((Activity) getContext()).runOnUiThread( (new Thread(new Runnable() {
-            @Override
-            public void run() {
-                // Display the text we just generated within the LogView.
-                appendToLog(outputBuilder.toString());
-            }
-        })));
+        // make sure the update occurs within the UI thread, at the start of the next frame.
+        // Lines arriving before then are picked up by the same update.
+        if (post) {
+            mChoreographer.postFrameCallback(mAppendPending);
+        }
 
-        if (mNext != null) {
-            mNext.println(priority, tag, msg, tr);
+        LogNode next = mNext;
+        if (next != null) {
+            next.println(record);
         }
     }
 
@@ -113,28 +93,34 @@ public class LogView extends AppCompatTextView implements LogNode {
         mNext = node;
     }
 
-    /** Takes a string and adds to it, with a separator, if the bit to be added isn't null. Since
-     * the logger takes so many arguments that might be null, this method helps cut out some of the
-     * agonizing tedium of writing the same 3 lines over and over.
-     * @param source StringBuilder containing the text to append to.
-     * @param addStr The String to append
-     * @param delimiter The String to separate the source and appended strings. A tab or comma,
-     *                  for instance.
-     * @return The fully concatenated String as a StringBuilder
-     */
-    private StringBuilder appendIfNotNull(StringBuilder source, String addStr, String delimiter) {
-        if (addStr != null) {
-            if (addStr.length() == 0) {
-                delimiter = "";
+    // The next LogNode in the chain.
+    volatile LogNode mNext;
+
+    // Choreographer of the UI thread the view was created on. Posting to it is thread safe.
+    private final Choreographer mChoreographer = Choreographer.getInstance();
+
+    // Text waiting to be displayed, filled in by any thread. Swapped with mDisplaying on the UI
+    // thread, so neither buffer is ever reallocated once it has grown to fit.
+    private final Object mPendingLock = new Object();
+    private StringBuilder mPending = new StringBuilder();
+    private StringBuilder mDisplaying = new StringBuilder();
+    private boolean mAppendPosted;
+
+    private final Choreographer.FrameCallback mAppendPending = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            StringBuilder lines;
+            synchronized (mPendingLock) {
+                lines = mPending;
+                mPending = mDisplaying;
+                mDisplaying = lines;
+                mAppendPosted = false;
             }
-
-            return source.append(addStr).append(delimiter);
+            // Display the text we just generated within the LogView, all lines in one go.
+            append(lines);
+            lines.setLength(0);
         }
-        return source;
-    }
-
-    // The next LogNode in the chain.
-    LogNode mNext;
+    };
 
     /** Outputs the string as a new line of log data in the LogView. */
     public void appendToLog(String s) {
@@ -24,7 +24,7 @@ import android.util.Log;
 public class LogWrapper implements LogNode {
 
     // For piping:  The next node to receive Log data after this one has done its work.
-    private LogNode mNext;
+    private volatile LogNode mNext;
 
     /**
      * Returns the next LogNode in the linked list.
@@ -50,26 +50,40 @@ public class LogWrapper implements LogNode {
      */
     @Override
     public void println(int priority, String tag, String msg, Throwable tr) {
-        // There actually are log methods that don't take a msg parameter.  For now,
-        // if that's the case, just convert null to the empty string and move on.
-        String useMsg = msg;
-        if (useMsg == null) {
-            useMsg = "";
+        LogRecord record = LogRecord.obtain(priority, tag, msg, tr);
+        try {
+            println(record);
+        } finally {
+            record.recycle();
         }
+    }
 
-        // If an exeption was provided, convert that exception to a usable string and attach
-        // it to the end of the msg method.
-        if (tr != null) {
-            msg += "\n" + Log.getStackTraceString(tr);
-        }
+    /**
+     * Prints data out to the console using Android's native log mechanism.
+     * @param record The log data. See {@link LogRecord}.
+     */
+    @Override
+    public void println(LogRecord record) {
+        // There actually are log methods that don't take a msg parameter.  For now,
+        // if that's the case, just convert null to the empty string and move on.
+        CharSequence msg = record.getMessage();
+        String useMsg = msg == null ? "" : msg.toString();
 
         // This is functionally identical to Log.x(tag, useMsg);
         // For instance, if priority were Log.VERBOSE, this would be the same as Log.v(tag, useMsg)
-        Log.println(priority, tag, useMsg);
+        Log.println(record.getPriority(), record.getTag(), useMsg);
+
+        // If an exeption was provided, convert that exception to a usable string and attach
+        // it to the end of the msg for the nodes further down.
+        String trace = record.getThrowableString();
+        if (trace != null) {
+            record.editMessage().append('\n').append(trace);
+        }
 
         // If this isn't the last node in the chain, move things along.
-        if (mNext != null) {
-            mNext.println(priority, tag, msg, tr);
+        LogNode next = mNext;
+        if (next != null) {
+            next.println(record);
         }
     }
 }
@@ -0,0 +1,367 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.common.logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * {@link LogNode} which keeps log data in files on the device, so it survives the process being
+ * killed and can be looked at afterwards with {@link MappedFileLogReader}.
+ *
+ * <p>The log is split over two segment files of a fixed size, which are memory-mapped: adding a
+ * record is a copy into memory, the kernel writes the pages out in its own time. When the
+ * current segment is full, the other one is cleared and written to, so the files never grow
+ * beyond twice the segment size.</p>
+ *
+ * <p>Each segment starts with a header holding the offset just past the last complete record.
+ * The offset is only moved once a record has been written in full, so a record cut short by the
+ * process dying is ignored rather than read back as garbage. Records are framed as follows, all
+ * numbers big-endian:</p>
+ * <pre>
+ * int   length of the rest of the record
+ * long  time, in milliseconds since the epoch
+ * byte  priority
+ * short length of the tag, followed by the tag in UTF-8
+ * int   length of the message, followed by the message in UTF-8
+ * </pre>
+ *
+ * <p>The files are opened when the first record arrives, so that put behind an
+ * {@link AsyncLogNode}, the disk is never touched on the thread calling {@link Log}.</p>
+ */
+public class MappedFileLogNode implements LogNode {
+
+    static final int MAGIC = 0x4d4c4f47; // "MLOG"
+    static final int VERSION = 1;
+
+    // Header layout.
+    static final int HEADER_MAGIC = 0;
+    static final int HEADER_VERSION = 4;
+    static final int HEADER_GENERATION = 8;
+    static final int HEADER_END = 16;
+    static final int HEADER_SIZE = 32;
+
+    // Fixed part of a record after the length: time, priority, tag length and message length.
+    static final int RECORD_FIXED_SIZE = 8 + 1 + 2 + 4;
+
+    static final int SEGMENT_COUNT = 2;
+
+    private static final String TAG = "MappedFileLogNode";
+
+    private static final int DEFAULT_SEGMENT_SIZE = 256 * 1024;
+    private static final int MAX_TAG_BYTES = Short.MAX_VALUE;
+
+    private final File mDirectory;
+    private final String mName;
+    private final int mSegmentSize;
+    private final int mMaxTagBytes;
+    private final int mMaxMessageBytes;
+
+    // Guarded by this.
+    private final MappedByteBuffer[] mSegments = new MappedByteBuffer[SEGMENT_COUNT];
+    private int mActive;
+    private long mGeneration;
+    private int mEnd;
+    private boolean mOpened;
+    private boolean mClosed;
+    private final StringBuilder mTraceBuffer = new StringBuilder();
+
+    // For piping:  The next node to receive Log data after this one has done its work.
+    private volatile LogNode mNext;
+
+    /**
+     * Creates a node writing to two 256KiB segments.
+     *
+     * @param directory Directory holding the log files, created if needed.
+     * @param name Base name of the log files.
+     */
+    public MappedFileLogNode(File directory, String name) {
+        this(directory, name, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * @param directory Directory holding the log files, created if needed.
+     * @param name Base name of the log files.
+     * @param segmentSize Size of each of the two segment files, in bytes.
+     */
+    public MappedFileLogNode(File directory, String name, int segmentSize) {
+        if (segmentSize < 1024) {
+            throw new IllegalArgumentException("segmentSize too small: " + segmentSize);
+        }
+        mDirectory = directory;
+        mName = name;
+        mSegmentSize = segmentSize;
+        // Leave room for several records per segment, however long a single record is.
+        mMaxTagBytes = Math.min(MAX_TAG_BYTES, segmentSize / 8);
+        mMaxMessageBytes = segmentSize / 4;
+    }
+
+    /**
+     * Returns the file backing one segment of the log.
+     */
+    static File segmentFile(File directory, String name, int segment) {
+        return new File(directory, name + "." + segment);
+    }
+
+    /**
+     * Returns the next LogNode in the chain.
+     */
+    public LogNode getNext() {
+        return mNext;
+    }
+
+    /**
+     * Sets the LogNode data will be sent to.
+     */
+    public void setNext(LogNode node) {
+        mNext = node;
+    }
+
+    @Override
+    public void println(int priority, String tag, String msg, Throwable tr) {
+        LogRecord record = LogRecord.obtain(priority, tag, msg, tr);
+        try {
+            println(record);
+        } finally {
+            record.recycle();
+        }
+    }
+
+    /**
+     * Appends the log data to the current segment.
+     * @param record The log data. See {@link LogRecord}.
+     */
+    @Override
+    public void println(LogRecord record) {
+        append(record);
+        LogNode next = mNext;
+        if (next != null) {
+            next.println(record);
+        }
+    }
+
+    /**
+     * Asks the kernel to write the mapped pages out now, to also survive the device losing power.
+     */
+    public synchronized void flush() {
+        for (MappedByteBuffer segment : mSegments) {
+            if (segment != null) {
+                segment.force();
+            }
+        }
+    }
+
+    /**
+     * Stops writing to the files. Records received afterwards are only passed on.
+     */
+    public synchronized void close() {
+        mClosed = true;
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            mSegments[i] = null;
+        }
+    }
+
+    private synchronized void append(LogRecord record) {
+        if (mClosed || !ensureOpen()) {
+            return;
+        }
+        CharSequence msg = record.getMessage();
+        if (msg == null) {
+            msg = "";
+        }
+        String trace = record.getThrowableString();
+        if (trace != null) {
+            mTraceBuffer.setLength(0);
+            mTraceBuffer.append(msg).append('\n').append(trace);
+            msg = mTraceBuffer;
+        }
+        String tag = record.getTag() == null ? "" : record.getTag();
+        int tagBytes = Utf8.length(tag, mMaxTagBytes);
+        int msgBytes = Utf8.length(msg, mMaxMessageBytes);
+        int length = RECORD_FIXED_SIZE + tagBytes + msgBytes;
+
+        if (mEnd + 4 + length > mSegmentSize) {
+            rotate();
+        }
+
+        MappedByteBuffer out = mSegments[mActive];
+        out.position(mEnd);
+        out.putInt(length);
+        out.putLong(System.currentTimeMillis());
+        out.put((byte) record.getPriority());
+        out.putShort((short) tagBytes);
+        Utf8.write(tag, tagBytes, out);
+        out.putInt(msgBytes);
+        Utf8.write(msg, msgBytes, out);
+
+        // Only now is the record part of the log.
+        mEnd = out.position();
+        out.putInt(HEADER_END, mEnd);
+        if (msg == mTraceBuffer) {
+            mTraceBuffer.setLength(0);
+        }
+    }
+
+    /**
+     * Starts over in the other segment.
+     */
+    private void rotate() {
+        mActive = (mActive + 1) % SEGMENT_COUNT;
+        mGeneration++;
+        mEnd = HEADER_SIZE;
+        MappedByteBuffer segment = mSegments[mActive];
+        // Empty the segment before it claims to be the newest one, so a crash in between can't
+        // resurrect old records as new.
+        segment.putInt(HEADER_END, mEnd);
+        segment.putLong(HEADER_GENERATION, mGeneration);
+    }
+
+    private boolean ensureOpen() {
+        if (mOpened) {
+            return mSegments[mActive] != null;
+        }
+        mOpened = true;
+        try {
+            if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+                throw new IOException("Can't create " + mDirectory);
+            }
+            long newest = -1;
+            for (int i = 0; i < SEGMENT_COUNT; i++) {
+                MappedByteBuffer segment = map(segmentFile(mDirectory, mName, i));
+                if (!isValid(segment)) {
+                    segment.putInt(HEADER_END, HEADER_SIZE);
+                    segment.putLong(HEADER_GENERATION, -1);
+                    segment.putInt(HEADER_VERSION, VERSION);
+                    segment.putInt(HEADER_MAGIC, MAGIC);
+                }
+                mSegments[i] = segment;
+                long generation = segment.getLong(HEADER_GENERATION);
+                if (generation > newest) {
+                    newest = generation;
+                    mActive = i;
+                }
+            }
+            if (newest < 0) {
+                // Brand new log.
+                mActive = 0;
+                mGeneration = 0;
+                mSegments[0].putLong(HEADER_GENERATION, 0);
+            } else {
+                mGeneration = newest;
+            }
+            mEnd = mSegments[mActive].getInt(HEADER_END);
+            return true;
+        } catch (IOException e) {
+            android.util.Log.e(TAG, "Can't open log files, file logging disabled", e);
+            close();
+            return false;
+        }
+    }
+
+    private boolean isValid(MappedByteBuffer segment) {
+        if (segment.getInt(HEADER_MAGIC) != MAGIC || segment.getInt(HEADER_VERSION) != VERSION) {
+            return false;
+        }
+        int end = segment.getInt(HEADER_END);
+        return end >= HEADER_SIZE && end <= mSegmentSize;
+    }
+
+    private MappedByteBuffer map(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            if (raf.length() != mSegmentSize) {
+                // A different size means a different configuration, start the segment over.
+                raf.setLength(0);
+                raf.setLength(mSegmentSize);
+            }
+            // The mapping stays valid after the channel is closed.
+            return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, mSegmentSize);
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * UTF-8 encoding straight into the mapped buffer, without intermediate arrays.
+     */
+    static final class Utf8 {
+
+        private Utf8() {}
+
+        /**
+         * Returns the number of bytes needed to encode the text, or the number of bytes needed
+         * for as many whole characters as fit in {@code maxBytes}.
+         */
+        static int length(CharSequence s, int maxBytes) {
+            int bytes = 0;
+            for (int i = 0, n = s.length(); i < n; i++) {
+                char c = s.charAt(i);
+                int size;
+                if (c < 0x80) {
+                    size = 1;
+                } else if (c < 0x800) {
+                    size = 2;
+                } else if (Character.isHighSurrogate(c) && i + 1 < n
+                        && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    size = 4;
+                    i++;
+                } else {
+                    size = 3;
+                }
+                if (bytes + size > maxBytes) {
+                    break;
+                }
+                bytes += size;
+            }
+            return bytes;
+        }
+
+        /**
+         * Writes the first {@code byteCount} bytes of the encoded text, as measured by
+         * {@link #length(CharSequence, int)}.
+         */
+        static void write(CharSequence s, int byteCount, MappedByteBuffer out) {
+            int end = out.position() + byteCount;
+            for (int i = 0, n = s.length(); i < n && out.position() < end; i++) {
+                char c = s.charAt(i);
+                if (c < 0x80) {
+                    out.put((byte) c);
+                } else if (c < 0x800) {
+                    out.put((byte) (0xc0 | (c >> 6)));
+                    out.put((byte) (0x80 | (c & 0x3f)));
+                } else if (Character.isHighSurrogate(c) && i + 1 < n
+                        && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, s.charAt(++i));
+                    out.put((byte) (0xf0 | (codePoint >> 18)));
+                    out.put((byte) (0x80 | ((codePoint >> 12) & 0x3f)));
+                    out.put((byte) (0x80 | ((codePoint >> 6) & 0x3f)));
+                    out.put((byte) (0x80 | (codePoint & 0x3f)));
+                } else {
+                    // Unpaired surrogates are written as U+FFFD, like String.getBytes does.
+                    if (Character.isSurrogate(c)) {
+                        c = '\ufffd';
+                    }
+                    out.put((byte) (0xe0 | (c >> 12)));
+                    out.put((byte) (0x80 | ((c >> 6) & 0x3f)));
+                    out.put((byte) (0x80 | (c & 0x3f)));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.common.logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Reads back the log files written by {@link MappedFileLogNode}, oldest record first, and turns
+ * them into text. Can be used while the node is still writing, records added after the files
+ * have been read are simply not part of the result.
+ */
+public class MappedFileLogReader {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * One record read back from the log files.
+     */
+    public static final class Entry {
+        public final long timeMillis;
+        public final int priority;
+        public final String tag;
+        public final String message;
+
+        Entry(long timeMillis, int priority, String tag, String message) {
+            this.timeMillis = timeMillis;
+            this.priority = priority;
+            this.tag = tag;
+            this.message = message;
+        }
+    }
+
+    private final File mDirectory;
+    private final String mName;
+
+    /**
+     * @param directory Directory holding the log files.
+     * @param name Base name of the log files, as given to {@link MappedFileLogNode}.
+     */
+    public MappedFileLogReader(File directory, String name) {
+        mDirectory = directory;
+        mName = name;
+    }
+
+    /**
+     * Returns the complete records found in the log files, oldest first. Segments which are
+     * missing or not recognised are skipped.
+     */
+    public List<Entry> read() throws IOException {
+        ByteBuffer[] segments = new ByteBuffer[MappedFileLogNode.SEGMENT_COUNT];
+        long[] generations = new long[MappedFileLogNode.SEGMENT_COUNT];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = load(MappedFileLogNode.segmentFile(mDirectory, mName, i));
+            generations[i] = segments[i] == null
+                    ? -1 : segments[i].getLong(MappedFileLogNode.HEADER_GENERATION);
+        }
+
+        List<Entry> entries = new ArrayList<>();
+        // Oldest generation first. There are only two segments, so this is the whole sort.
+        int first = generations[0] <= generations[1] ? 0 : 1;
+        for (int i = 0; i < segments.length; i++) {
+            int segment = (first + i) % segments.length;
+            if (generations[segment] >= 0) {
+                readSegment(segments[segment], entries);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Writes the records found in the log files as text, one record per line, oldest first.
+     *
+     * @return The number of records written.
+     */
+    public int export(Writer out) throws IOException {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("MM-dd HH:mm:ss.SSS", Locale.US);
+        List<Entry> entries = read();
+        Date date = new Date();
+        for (Entry entry : entries) {
+            date.setTime(entry.timeMillis);
+            out.write(dateFormat.format(date));
+            out.write(' ');
+            String priority = LogLineFormat.priorityName(entry.priority);
+            out.write(priority == null ? "-" : priority);
+            out.write('/');
+            out.write(entry.tag);
+            out.write(": ");
+            out.write(entry.message);
+            out.write('\n');
+        }
+        out.flush();
+        return entries.size();
+    }
+
+    private static ByteBuffer load(File file) throws IOException {
+        if (!file.isFile()) {
+            return null;
+        }
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            long length = raf.length();
+            if (length < MappedFileLogNode.HEADER_SIZE || length > Integer.MAX_VALUE) {
+                return null;
+            }
+            byte[] bytes = new byte[(int) length];
+            raf.readFully(bytes);
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            if (buffer.getInt(MappedFileLogNode.HEADER_MAGIC) != MappedFileLogNode.MAGIC
+                    || buffer.getInt(MappedFileLogNode.HEADER_VERSION)
+                            != MappedFileLogNode.VERSION) {
+                return null;
+            }
+            return buffer;
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static void readSegment(ByteBuffer segment, List<Entry> entries) {
+        int end = segment.getInt(MappedFileLogNode.HEADER_END);
+        if (end < MappedFileLogNode.HEADER_SIZE || end > segment.capacity()) {
+            return;
+        }
+        byte[] bytes = segment.array();
+        int position = MappedFileLogNode.HEADER_SIZE;
+        while (position + 4 <= end) {
+            int length = segment.getInt(position);
+            int start = position + 4;
+            if (length < MappedFileLogNode.RECORD_FIXED_SIZE || start + length > end) {
+                // Not a record we wrote, the rest of the segment can't be trusted.
+                return;
+            }
+            long timeMillis = segment.getLong(start);
+            int priority = segment.get(start + 8);
+            int tagLength = segment.getShort(start + 9) & 0xffff;
+            int tagStart = start + 11;
+            int msgLengthAt = tagStart + tagLength;
+            if (msgLengthAt + 4 > start + length) {
+                return;
+            }
+            int msgLength = segment.getInt(msgLengthAt);
+            int msgStart = msgLengthAt + 4;
+            if (msgLength < 0 || msgStart + msgLength != start + length) {
+                return;
+            }
+            entries.add(new Entry(timeMillis, priority,
+                    new String(bytes, tagStart, tagLength, UTF_8),
+                    new String(bytes, msgStart, msgLength, UTF_8)));
+            position = start + length;
+        }
+    }
+}
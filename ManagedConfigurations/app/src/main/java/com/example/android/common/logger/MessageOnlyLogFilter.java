@@ -22,7 +22,7 @@ package com.example.android.common.logger;
  */
 public class MessageOnlyLogFilter implements LogNode {
 
-    LogNode mNext;
+    volatile LogNode mNext;
 
     /**
      * Takes the "next" LogNode as a parameter, to simplify chaining.
@@ -38,8 +38,20 @@ public class MessageOnlyLogFilter implements LogNode {
 
     @Override
     public void println(int priority, String tag, String msg, Throwable tr) {
-        if (mNext != null) {
-            getNext().println(Log.NONE, null, msg, null);
+        LogNode next = mNext;
+        if (next != null) {
+            next.println(Log.NONE, null, msg, null);
+        }
+    }
+
+    @Override
+    public void println(LogRecord record) {
+        LogNode next = mNext;
+        if (next != null) {
+            record.setPriority(Log.NONE);
+            record.setTag(null);
+            record.setThrowable(null);
+            next.println(record);
         }
     }
 
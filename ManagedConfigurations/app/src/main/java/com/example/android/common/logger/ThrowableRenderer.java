@@ -0,0 +1,228 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.common.logger;
+
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Turns throwables into stack trace text, in the same format as
+ * {@link android.util.Log#getStackTraceString(Throwable)}, with two differences: long traces are
+ * cut short, and the text of recently seen traces is reused.
+ *
+ * <p>Throwables thrown from the same place for the same reason have identical traces, so errors
+ * which keep repeating are only formatted once, until they fall out of a small LRU cache. The
+ * cache is keyed on the frames which are rendered only, copied out of the trace. The text of the
+ * last few throwables is also remembered by identity, so the nodes of a chain asking for the
+ * same throwable don't even copy their traces. Within a chain, prefer
+ * {@link LogRecord#getThrowableString()}, which renders once per record.</p>
+ */
+public final class ThrowableRenderer {
+
+    public static final int DEFAULT_MAX_CAUSES = 8;
+    public static final int DEFAULT_MAX_FRAMES = 32;
+    public static final int DEFAULT_CACHE_SIZE = 32;
+
+    // Number of throwables whose text is remembered by identity.
+    private static final int RECENT_SIZE = 8;
+
+    private static volatile ThrowableRenderer sDefault = new ThrowableRenderer(
+            DEFAULT_MAX_CAUSES, DEFAULT_MAX_FRAMES, DEFAULT_CACHE_SIZE);
+
+    private final int mMaxCauses;
+    private final int mMaxFrames;
+
+    // Guarded by itself.
+    private final LinkedHashMap<Trace, String> mCache;
+    // Guarded by mCache. The most recently rendered throwables and their text, the oldest is
+    // replaced first.
+    private final Throwable[] mRecentThrowables = new Throwable[RECENT_SIZE];
+    private final String[] mRecentTexts = new String[RECENT_SIZE];
+    private int mNextRecent;
+
+    /**
+     * @param maxCauses Number of causes rendered after the throwable itself.
+     * @param maxFrames Number of stack frames rendered per throwable.
+     * @param cacheSize Number of distinct traces whose text is kept.
+     */
+    public ThrowableRenderer(int maxCauses, int maxFrames, final int cacheSize) {
+        mMaxCauses = maxCauses;
+        mMaxFrames = maxFrames;
+        mCache = new LinkedHashMap<Trace, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Trace, String> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the renderer used by {@link LogRecord#getThrowableString()}.
+     */
+    public static ThrowableRenderer getDefault() {
+        return sDefault;
+    }
+
+    /**
+     * Sets the renderer used by {@link LogRecord#getThrowableString()}.
+     */
+    public static void setDefault(ThrowableRenderer renderer) {
+        if (renderer == null) {
+            throw new NullPointerException("renderer == null");
+        }
+        sDefault = renderer;
+    }
+
+    /**
+     * Returns the stack trace text of the throwable and its causes. Like
+     * {@link android.util.Log#getStackTraceString(Throwable)}, returns an empty string for null
+     * and for network errors caused by an {@link UnknownHostException}, which are expected when
+     * offline and would only flood the log.
+     */
+    public String render(Throwable tr) {
+        if (tr == null) {
+            return "";
+        }
+        synchronized (mCache) {
+            for (int i = 0; i < RECENT_SIZE; i++) {
+                if (mRecentThrowables[i] == tr) {
+                    return mRecentTexts[i];
+                }
+            }
+        }
+
+        // Only built on a miss, getStackTrace() copies every frame of the throwable.
+        Trace trace = new Trace(tr, mMaxCauses, mMaxFrames);
+        String text;
+        synchronized (mCache) {
+            text = mCache.get(trace);
+        }
+        if (text == null) {
+            text = trace.unknownHost ? "" : format(trace);
+            synchronized (mCache) {
+                mCache.put(trace, text);
+            }
+        }
+        synchronized (mCache) {
+            mRecentThrowables[mNextRecent] = tr;
+            mRecentTexts[mNextRecent] = text;
+            mNextRecent = (mNextRecent + 1) % RECENT_SIZE;
+        }
+        return text;
+    }
+
+    private static String format(Trace trace) {
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < trace.descriptions.length; i++) {
+            if (i > 0) {
+                out.append("Caused by: ");
+            }
+            out.append(trace.descriptions[i]).append('\n');
+            StackTraceElement[] frames = trace.frames[i];
+            for (StackTraceElement frame : frames) {
+                out.append("\tat ").append(frame).append('\n');
+            }
+            if (trace.frameCounts[i] > frames.length) {
+                out.append("\t... ").append(trace.frameCounts[i] - frames.length)
+                        .append(" more\n");
+            }
+        }
+        if (trace.omittedCauses > 0) {
+            out.append("\t... ").append(trace.omittedCauses).append(" more causes\n");
+        }
+        return out.toString();
+    }
+
+    /**
+     * What makes two traces render to the same text: the description, the frames rendered and
+     * the number of frames of the throwable and of each cause.
+     */
+    private static final class Trace {
+        private static final int MAX_CHAIN = 1024;
+
+        final String[] descriptions;
+        // The frames rendered, at most maxFrames of them.
+        final StackTraceElement[][] frames;
+        final int[] frameCounts;
+        final int omittedCauses;
+        final boolean unknownHost;
+        private final int mHash;
+
+        Trace(Throwable tr, int maxCauses, int maxFrames) {
+            int count = 0;
+            boolean unknownHost = false;
+            // The limit guards against cycles in broken cause chains.
+            for (Throwable t = tr; t != null && count < MAX_CHAIN; t = t.getCause()) {
+                if (t instanceof UnknownHostException) {
+                    unknownHost = true;
+                }
+                count++;
+            }
+            int kept = Math.min(count, maxCauses + 1);
+            descriptions = new String[kept];
+            frames = new StackTraceElement[kept][];
+            frameCounts = new int[kept];
+            Throwable t = tr;
+            StackTraceElement[] enclosing = null;
+            for (int i = 0; i < kept; i++) {
+                descriptions[i] = t.toString();
+                StackTraceElement[] all = t.getStackTrace();
+
+                // Frames shared with the enclosing trace are summarised, as printStackTrace does.
+                int unique = all.length;
+                if (enclosing != null) {
+                    int j = enclosing.length - 1;
+                    while (unique > 0 && j >= 0 && all[unique - 1].equals(enclosing[j])) {
+                        unique--;
+                        j--;
+                    }
+                }
+                int shown = Math.min(unique, maxFrames);
+                frames[i] = shown == all.length ? all : Arrays.copyOf(all, shown);
+                frameCounts[i] = all.length;
+                enclosing = all;
+                t = t.getCause();
+            }
+            omittedCauses = count - kept;
+            this.unknownHost = unknownHost;
+            mHash = 31 * (31 * Arrays.hashCode(descriptions) + Arrays.hashCode(frameCounts))
+                    + Arrays.deepHashCode(frames);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Trace)) {
+                return false;
+            }
+            Trace other = (Trace) o;
+            return mHash == other.mHash
+                    && omittedCauses == other.omittedCauses
+                    && Arrays.equals(frameCounts, other.frameCounts)
+                    && Arrays.equals(descriptions, other.descriptions)
+                    && Arrays.deepEquals(frames, other.frames);
+        }
+
+        @Override
+        public int hashCode() {
+            return mHash;
+        }
+    }
+}
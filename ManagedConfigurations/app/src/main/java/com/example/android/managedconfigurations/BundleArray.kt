@@ -0,0 +1,100 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.managedconfigurations
+
+import android.os.Bundle
+import android.os.Parcelable
+
+/**
+ * The entries of a bundle_array restriction, decoded one at a time when they are read rather
+ * than all at once, as the array may be very long.
+ *
+ * Arrays are compared by identity, a deep comparison of a long array has no place on the main
+ * thread. [ManagedConfigRepository] keeps the previous array when the restriction is unchanged.
+ *
+ * @param bundles The bundles of the restriction, used as they are, without copying.
+ * @param keyName Name of the string value identifying an entry, if entries have one.
+ * @param decode Turns a bundle into an entry, or returns null if values are missing from it.
+ */
+class BundleArray<T : Any>(
+    private val bundles: Array<out Parcelable>,
+    private val keyName: String?,
+    private val decode: (Bundle) -> T?,
+) {
+
+    // Position of the first entry with each key, built by the first lookup.
+    private val positions: Map<String, Int> by lazy {
+        val name = checkNotNull(keyName) { "Entries have no key" }
+        val positions = HashMap<String, Int>(bundles.size * 4 / 3 + 1)
+        for (i in bundles.indices) {
+            val key = (bundles[i] as Bundle).getString(name) ?: continue
+            if (key !in positions) {
+                positions[key] = i
+            }
+        }
+        positions
+    }
+
+    // Positions of the complete entries, found by the first call which needs them.
+    private val completePositions: IntArray by lazy {
+        val positions = IntArray(bundles.size)
+        var count = 0
+        for (i in bundles.indices) {
+            if (get(i) != null) {
+                positions[count++] = i
+            }
+        }
+        positions.copyOf(count)
+    }
+
+    /**
+     * Number of bundles in the array, including the ones missing values.
+     */
+    val size: Int get() = bundles.size
+
+    /**
+     * Number of complete entries. The first call decodes every entry once to count them.
+     */
+    val completeCount: Int get() = completePositions.size
+
+    /**
+     * Returns the entry at the given position, or null if values are missing from it.
+     */
+    operator fun get(index: Int): T? = decode(bundles[index] as Bundle)
+
+    /**
+     * Returns the complete entry at the given position, counting complete entries only, as
+     * [asSequence] does.
+     */
+    fun getComplete(index: Int): T = checkNotNull(get(completePositions[index]))
+
+    /**
+     * Returns the first entry with the given key, or null if there is none. The first call reads
+     * the key of every entry, later calls take constant time.
+     */
+    fun findByKey(key: String): T? {
+        val index = positions[key] ?: return null
+        return get(index)
+    }
+
+    /**
+     * Returns the complete entries, decoding each one as the sequence reaches it.
+     */
+    fun asSequence(): Sequence<T> = bundles.asSequence().mapNotNull { decode(it as Bundle) }
+
+    override fun toString(): String = "BundleArray(size=$size)"
+}
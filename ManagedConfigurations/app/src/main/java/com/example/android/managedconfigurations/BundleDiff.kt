@@ -0,0 +1,90 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.managedconfigurations
+
+import android.os.Bundle
+
+/**
+ * Compares restriction bundles by value. Bundles don't implement equals(), and the ones handed
+ * out by [android.content.RestrictionsManager] are new objects on every call.
+ */
+object BundleDiff {
+
+    /**
+     * Returns the keys whose values differ between the two bundles, including keys only present
+     * in one of them. A null bundle is treated as an empty one.
+     */
+    fun changedKeys(old: Bundle?, new: Bundle?): Set<String> {
+        val oldKeys = old?.keySet() ?: emptySet()
+        val newKeys = new?.keySet() ?: emptySet()
+        val changed = HashSet<String>()
+        for (key in oldKeys) {
+            if (key !in newKeys || !valuesEqual(old!!.value(key), new!!.value(key))) {
+                changed.add(key)
+            }
+        }
+        for (key in newKeys) {
+            if (key !in oldKeys) {
+                changed.add(key)
+            }
+        }
+        return changed
+    }
+
+    /**
+     * Returns whether the two bundles hold the same keys and values, nested bundles and arrays
+     * included.
+     */
+    fun bundlesEqual(a: Bundle?, b: Bundle?): Boolean {
+        if (a === b) {
+            return true
+        }
+        if (a == null || b == null || a.size() != b.size()) {
+            return false
+        }
+        for (key in a.keySet()) {
+            if (!b.containsKey(key) || !valuesEqual(a.value(key), b.value(key))) {
+                return false
+            }
+        }
+        return true
+    }
+
+    /**
+     * Returns whether the two bundles hold equal values for [key], a missing value being null. A
+     * null bundle is treated as an empty one.
+     */
+    fun valueEqual(a: Bundle?, b: Bundle?, key: String): Boolean =
+        valuesEqual(a?.value(key), b?.value(key))
+
+    private fun valuesEqual(a: Any?, b: Any?): Boolean = when {
+        a === b -> true
+        a == null || b == null -> false
+        a is Bundle && b is Bundle -> bundlesEqual(a, b)
+        a is Array<*> && b is Array<*> ->
+            a.size == b.size && a.indices.all { valuesEqual(a[it], b[it]) }
+        a is BooleanArray && b is BooleanArray -> a.contentEquals(b)
+        a is IntArray && b is IntArray -> a.contentEquals(b)
+        a is LongArray && b is LongArray -> a.contentEquals(b)
+        else -> a == b
+    }
+
+    // Restriction values are booleans, ints, strings, string arrays, bundles and bundle arrays,
+    // which the untyped getter reads back without having to know the type.
+    @Suppress("DEPRECATION")
+    private fun Bundle.value(key: String): Any? = get(key)
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.managedconfigurations
+
+import java.util.concurrent.atomic.AtomicLong
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.withTimeoutOrNull
+
+/**
+ * Collapses bursts of requests into a single run of an action.
+ *
+ * The action runs once no request has arrived for [quietWindowMillis], or [maxLatencyMillis]
+ * after the first request of the burst, whichever comes first. A burst that never goes quiet
+ * still gets a run at least every [maxLatencyMillis].
+ */
+class CoalescingScheduler(
+    private val quietWindowMillis: Long,
+    private val maxLatencyMillis: Long,
+) {
+
+    private val signals = Channel<Unit>(Channel.CONFLATED)
+    private val requests = AtomicLong()
+    private val runs = AtomicLong()
+
+    /**
+     * Number of times [request] has been called.
+     */
+    val requestCount: Long get() = requests.get()
+
+    /**
+     * Number of times the action has run.
+     */
+    val runCount: Long get() = runs.get()
+
+    /**
+     * Asks for the action to run. Can be called from any thread, and never blocks.
+     */
+    fun request() {
+        requests.incrementAndGet()
+        signals.trySend(Unit)
+    }
+
+    /**
+     * Runs [action] for each burst of requests, until cancelled. Requests made while nobody was
+     * running the scheduler are dropped, the caller is expected to start with an up to date
+     * state.
+     */
+    suspend fun run(action: suspend () -> Unit): Nothing {
+        signals.tryReceive()
+        while (true) {
+            signals.receive()
+            // Timed by the dispatcher of the caller, like any delay, so virtual time in tests.
+            withTimeoutOrNull(maxLatencyMillis) {
+                do {
+                    val signal = withTimeoutOrNull(quietWindowMillis) { signals.receive() }
+                } while (signal != null)
+            }
+            runs.incrementAndGet()
+            action()
+        }
+    }
+}
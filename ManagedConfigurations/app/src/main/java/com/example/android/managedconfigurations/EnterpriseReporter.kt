@@ -24,10 +24,28 @@ import androidx.enterprise.feedback.KeyedAppStatesCallback.STATUS_EXCEEDED_BUFFE
 import androidx.enterprise.feedback.KeyedAppStatesCallback.STATUS_SUCCESS
 import androidx.enterprise.feedback.KeyedAppStatesCallback.STATUS_TRANSACTION_TOO_LARGE_ERROR
 import androidx.enterprise.feedback.KeyedAppStatesCallback.STATUS_UNKNOWN_ERROR
+import androidx.annotation.VisibleForTesting
 import androidx.enterprise.feedback.KeyedAppStatesReporter
+import java.io.File
+import java.io.PrintWriter
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+import kotlin.coroutines.resume
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.suspendCancellableCoroutine
+import kotlinx.coroutines.withTimeoutOrNull
 
 /**
- * Sends feedback to device management apps.
+ * Sends feedback to device management apps, together with the other feedback reported in the
+ * same batch or within a short time, see [EnterpriseReporter].
  */
 fun Context.enterpriseFeedback(
     key: String,
@@ -35,20 +53,340 @@ fun Context.enterpriseFeedback(
     data: String,
     severity: Int = KeyedAppState.SEVERITY_ERROR
 ) {
-    val keyedAppStatesReporter = KeyedAppStatesReporter.create(this)
     val keyedAppStateMessage = KeyedAppState.builder()
         .setSeverity(severity)
         .setKey(key)
         .setMessage(message)
         .setData(data)
         .build()
-    val list: MutableList<KeyedAppState> = ArrayList()
-    list.add(keyedAppStateMessage)
-    keyedAppStatesReporter.setStates(list, Callback())
+    EnterpriseReporter.get(this).report(keyedAppStateMessage)
 }
 
-internal class Callback : KeyedAppStatesCallback {
+/**
+ * Gathers keyed app states and sends them to device management apps with a single
+ * [KeyedAppStatesReporter.setStates] call, instead of one call, and one Binder transaction per
+ * management app, per state.
+ *
+ * Reporting a state only queues it in memory. States reported inside [batch] are handed to the
+ * flusher when the outermost batch ends, states reported outside of a batch [windowMillis] after
+ * the first of them. A state replaces any queued state with the same key. States already sent
+ * with the same content, according to [cache], are left out, and clear the outbox of any older
+ * state with their key.
+ *
+ * The flusher runs on [ioDispatcher]. It adds the states to the [outbox] before sending them, and
+ * only removes them once a management app has received them, so states which could not be sent
+ * before the process died are sent by the next one. States are sent in chunks small enough for a
+ * Binder transaction, by estimated parcel size. Chunks the management apps have no room for are
+ * sent again, waiting twice as long after each attempt, and so are chunks no management app
+ * answers for in time; after [MAX_ATTEMPTS] they stay in the outbox until the next flush. Chunks
+ * which turn out too large anyway are split in two.
+ */
+class EnterpriseReporter(
+    private val reporter: KeyedAppStatesReporter,
+    private val outbox: FeedbackOutbox,
+    private val scope: CoroutineScope,
+    private val ioDispatcher: CoroutineDispatcher = Dispatchers.IO,
+    private val windowMillis: Long = WINDOW_MILLIS,
+    private val cache: SentStatesCache? = null,
+) {
+
+    private val lock = Any()
+
+    // Guarded by lock.
+    private val pending = LinkedHashMap<String, KeyedAppState>()
+    private var batchDepth = 0
+    private var flushJob: Job? = null
+
+    // Wakes the flusher, which is started by the first flush.
+    private val wakeups = Channel<Unit>(Channel.CONFLATED)
+    private val flusherStarted = AtomicBoolean()
+
+    private val sends = AtomicLong()
+    private val suppressed = AtomicLong()
+    private val retries = AtomicLong()
+    private val drops = AtomicLong()
+
+    // Number of states in the outbox, as of the last time the flusher changed it.
+    private val queued = AtomicInteger()
+
+    /**
+     * Number of times states have been sent.
+     */
+    val sendCount: Long get() = sends.get()
+
+    /**
+     * Number of states not sent because they had already been sent.
+     */
+    val suppressedCount: Long get() = suppressed.get()
+
+    /**
+     * Number of times states have been sent again after an error, or for lack of an answer.
+     */
+    val retryCount: Long get() = retries.get()
+
+    /**
+     * Number of states given up on for being too large to ever be sent.
+     */
+    val dropCount: Long get() = drops.get()
+
+    /**
+     * Number of states reported but not sent yet, in memory or in the outbox.
+     */
+    val queueDepth: Int get() = synchronized(lock) { pending.size } + queued.get()
+
+    /**
+     * Queues the state to be sent with the rest of its batch. Can be called from any thread, and
+     * never blocks.
+     */
+    fun report(state: KeyedAppState) {
+        synchronized(lock) {
+            pending[state.key] = state
+            if (batchDepth > 0 || flushJob != null) {
+                return
+            }
+            flushJob = scope.launch {
+                delay(windowMillis)
+                flush()
+            }
+        }
+    }
+
+    /**
+     * Runs [block], holding back the states reported meanwhile until it returns.
+     */
+    inline fun <T> batch(block: () -> T): T {
+        beginBatch()
+        try {
+            return block()
+        } finally {
+            endBatch()
+        }
+    }
+
+    /**
+     * Hands the states queued so far to the flusher now, and has it send whatever the outbox
+     * holds. Doesn't wait for them to be sent.
+     */
+    fun flush() {
+        synchronized(lock) {
+            flushJob?.cancel()
+            flushJob = null
+        }
+        if (flusherStarted.compareAndSet(false, true)) {
+            scope.launch(ioDispatcher) {
+                for (wakeup in wakeups) {
+                    drain()
+                }
+            }
+        }
+        wakeups.trySend(Unit)
+    }
+
+    /**
+     * Prints the counters of this reporter.
+     */
+    fun dump(prefix: String, writer: PrintWriter) {
+        writer.print(prefix)
+        writer.println(
+            "Feedback: sent=$sendCount suppressed=$suppressedCount retried=$retryCount " +
+                "dropped=$dropCount queued=$queueDepth"
+        )
+    }
+
+    @PublishedApi
+    internal fun beginBatch() {
+        synchronized(lock) {
+            batchDepth++
+        }
+    }
+
+    @PublishedApi
+    internal fun endBatch() {
+        val outermost = synchronized(lock) { --batchDepth == 0 }
+        if (outermost) {
+            flush()
+        }
+    }
+
+    private suspend fun drain() {
+        val states = synchronized(lock) {
+            ArrayList(pending.values).also { pending.clear() }
+        }
+        val unsent = cache?.unsent(states) ?: states
+        if (unsent.size < states.size) {
+            suppressed.addAndGet((states.size - unsent.size).toLong())
+            // The management apps already hold these, any older state waiting for them is stale.
+            val unsentKeys = unsent.mapTo(HashSet()) { it.key }
+            outbox.removeKeys(states.filter { it.key !in unsentKeys }.map { it.key })
+        }
+        outbox.add(unsent)
+        queued.set(outbox.size)
+        try {
+            for (chunk in chunks(outbox.states())) {
+                if (!send(chunk)) {
+                    // The management apps are busy, leave the rest for the next flush.
+                    break
+                }
+            }
+        } finally {
+            queued.set(outbox.size)
+        }
+    }
+
+    // Splits the states into chunks which fit in a transaction, dropping states which never will.
+    private fun chunks(states: List<KeyedAppState>): List<List<KeyedAppState>> {
+        val chunks = ArrayList<List<KeyedAppState>>()
+        var chunk = ArrayList<KeyedAppState>()
+        var chunkBytes = 0
+        for (state in states) {
+            val bytes = estimateParcelSize(state)
+            if (bytes > MAX_CHUNK_BYTES) {
+                Log.w(TAG, "State ${state.key} is too large to send")
+                drop(listOf(state))
+                continue
+            }
+            if (chunkBytes + bytes > MAX_CHUNK_BYTES) {
+                chunks.add(chunk)
+                chunk = ArrayList()
+                chunkBytes = 0
+            }
+            chunk.add(state)
+            chunkBytes += bytes
+        }
+        if (chunk.isNotEmpty()) {
+            chunks.add(chunk)
+        }
+        return chunks
+    }
+
+    // Returns false if the states are still in the outbox because the management apps are busy.
+    private suspend fun send(states: List<KeyedAppState>): Boolean {
+        var attempt = 0
+        while (true) {
+            sends.incrementAndGet()
+            when (setStates(states)) {
+                STATUS_SUCCESS -> {
+                    outbox.remove(states)
+                    cache?.sent(states)
+                    return true
+                }
+                STATUS_TRANSACTION_TOO_LARGE_ERROR -> {
+                    if (states.size == 1) {
+                        drop(states)
+                        return true
+                    }
+                    val half = states.size / 2
+                    return send(states.subList(0, half)) && send(states.subList(half, states.size))
+                }
+                STATUS_EXCEEDED_BUFFER_ERROR, STATUS_NO_ANSWER -> {
+                    if (++attempt == MAX_ATTEMPTS) {
+                        return false
+                    }
+                    delay(BASE_BACKOFF_MILLIS shl (attempt - 1))
+                    retries.incrementAndGet()
+                }
+                else -> return false
+            }
+        }
+    }
+
+    // Returns the status of sending the states, or STATUS_NO_ANSWER if no answer comes in time.
+    private suspend fun setStates(states: List<KeyedAppState>): Int =
+        withTimeoutOrNull(RESULT_TIMEOUT_MILLIS) {
+            suspendCancellableCoroutine { continuation ->
+                // Management apps may each answer, only the first answer counts.
+                val answered = AtomicBoolean()
+                reporter.setStates(states, Callback { status ->
+                    if (answered.compareAndSet(false, true)) {
+                        continuation.resume(status)
+                    }
+                })
+            }
+        } ?: STATUS_NO_ANSWER
+
+    private fun drop(states: List<KeyedAppState>) {
+        drops.addAndGet(states.size.toLong())
+        outbox.remove(states)
+    }
+
+    companion object {
+        private const val TAG = "EnterpriseReporter"
+
+        // States reported outside of a batch are sent this long after the first of them.
+        private const val WINDOW_MILLIS = 100L
+
+        private const val OUTBOX_NAME = "feedback.outbox"
+        private const val SENT_STATES_PREFS = "sent_states"
+
+        // Unchanged states are sent again once a day, in case a management app lost them.
+        private const val HEARTBEAT_MILLIS = 24 * 60 * 60 * 1000L
+
+        // Well under the 1 MB Binder buffer, which the whole process shares.
+        private const val MAX_CHUNK_BYTES = 100 * 1024
+
+        // Chunks which didn't fit are sent again after 0.5, 1, 2, 4 and 8 seconds.
+        private const val BASE_BACKOFF_MILLIS = 500L
+        private const val MAX_ATTEMPTS = 6
+
+        // How long to wait for management apps to answer before sending again.
+        private const val RESULT_TIMEOUT_MILLIS = 10_000L
+
+        // Not a status of KeyedAppStatesCallback, the states may or may not have been received.
+        private const val STATUS_NO_ANSWER = -1
+
+        // A state travels as a Bundle of four entries, each named by a key of about 45 chars.
+        private const val STATE_OVERHEAD_BYTES = 512
+
+        @Volatile
+        private var instance: EnterpriseReporter? = null
+
+        /**
+         * Returns the reporter shared by the whole process. States left in the outbox by the
+         * previous process are sent again.
+         */
+        fun get(context: Context): EnterpriseReporter {
+            instance?.let { return it }
+            synchronized(this) {
+                instance?.let { return it }
+                val appContext = context.applicationContext
+                val reporter = EnterpriseReporter(
+                    KeyedAppStatesReporter.create(appContext),
+                    FeedbackOutbox(File(appContext.noBackupFilesDir, OUTBOX_NAME)),
+                    CoroutineScope(SupervisorJob() + Dispatchers.Main.immediate),
+                    cache = SentStatesCache(
+                        appContext.getSharedPreferences(SENT_STATES_PREFS, Context.MODE_PRIVATE),
+                        HEARTBEAT_MILLIS
+                    )
+                )
+                instance = reporter
+                reporter.flush()
+                return reporter
+            }
+        }
+
+        /**
+         * Returns the reporter shared by the whole process, or null if nothing has created it
+         * yet. Unlike [get], doesn't start the flusher.
+         */
+        fun peek(): EnterpriseReporter? = instance
+
+        /**
+         * Returns about how many bytes the state takes in a Parcel, erring on the large side.
+         */
+        @VisibleForTesting
+        internal fun estimateParcelSize(state: KeyedAppState): Int =
+            STATE_OVERHEAD_BYTES + stringSize(state.key) + stringSize(state.message) +
+                stringSize(state.data)
+
+        // A Parcel holds a string as its length and UTF-16 chars with a terminator, 4-aligned.
+        private fun stringSize(value: String?): Int =
+            if (value == null) 4 else 4 + ((value.length + 1) * 2 + 3 and 3.inv())
+    }
+}
+
+internal class Callback(private val onStatus: ((Int) -> Unit)? = null) : KeyedAppStatesCallback {
     override fun onResult(state: Int, throwable: Throwable?) {
+        onStatus?.invoke(state)
         when (state) {
             STATUS_SUCCESS ->
                 Log.i("ErrorReporter", "KeyedAppStatesCallback status: SUCCESS ")
@@ -0,0 +1,284 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.managedconfigurations
+
+import androidx.core.util.AtomicFile
+import androidx.enterprise.feedback.KeyedAppState
+import com.example.android.common.logger.Log
+import java.io.ByteArrayOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.EOFException
+import java.io.File
+import java.io.FileOutputStream
+import java.io.IOException
+import java.io.RandomAccessFile
+import java.util.zip.CRC32
+
+/**
+ * Keyed app states waiting to be sent to device management apps, kept in a file so that they
+ * are sent even if the process dies first.
+ *
+ * The file is a log which is only ever appended to: a record for each state added, and a record
+ * for each state sent. Only the last state added for each key is kept. Once most of the records
+ * are obsolete, the file is rewritten with the states still waiting.
+ *
+ * Every record carries a checksum, a record cut short by the process dying ends the log, and is
+ * overwritten by the next append. Reading and writing block, so use it off the main thread.
+ */
+class FeedbackOutbox(file: File) {
+
+    private val file = AtomicFile(file)
+
+    private class Entry(val sequence: Int, val state: KeyedAppState)
+
+    // States waiting, by key, read from the file by the first call.
+    private var entries: LinkedHashMap<String, Entry>? = null
+
+    // Number of state records in the file, numbering the next one.
+    private var nextSequence = 0
+
+    // Number of records in the file, and how many bytes of it hold records which can be read.
+    private var recordCount = 0
+    private var validLength = 0L
+
+    /**
+     * Number of states waiting.
+     */
+    @get:Synchronized
+    val size: Int get() = entries().size
+
+    /**
+     * Returns the states waiting, in the order they were first added.
+     */
+    @Synchronized
+    fun states(): List<KeyedAppState> = entries().values.map { it.state }
+
+    /**
+     * Adds the states, replacing any waiting state with the same key. Returns once they are on
+     * disk, or have failed to be written.
+     */
+    @Synchronized
+    fun add(states: Collection<KeyedAppState>) {
+        if (states.isEmpty()) {
+            return
+        }
+        val entries = entries()
+        val records = ByteArrayOutputStream()
+        for (state in states) {
+            val sequence = nextSequence++
+            records.writeRecord { output ->
+                output.writeByte(RECORD_ADDED)
+                output.writeUTF(state.key)
+                output.writeInt(state.severity)
+                output.writeString(state.message)
+                output.writeString(state.data)
+            }
+            entries.remove(state.key)
+            entries[state.key] = Entry(sequence, state)
+        }
+        append(records, states.size)
+    }
+
+    /**
+     * Removes the states which have been sent. States which have been replaced since they were
+     * read from [states] are kept.
+     */
+    @Synchronized
+    fun remove(states: Collection<KeyedAppState>) {
+        val entries = entries()
+        removeKeys(states.filter { entries[it.key]?.state === it }.map { it.key })
+    }
+
+    /**
+     * Removes the states waiting with the given keys, whichever they are.
+     */
+    @Synchronized
+    fun removeKeys(keys: Collection<String>) {
+        val entries = entries()
+        val records = ByteArrayOutputStream()
+        var count = 0
+        for (key in keys) {
+            val entry = entries.remove(key) ?: continue
+            records.writeRecord { output ->
+                output.writeByte(RECORD_SENT)
+                output.writeUTF(key)
+                output.writeInt(entry.sequence)
+            }
+            count++
+        }
+        if (count == 0) {
+            return
+        }
+        if (recordCount + count > entries.size * 2 + COMPACTION_SLACK) {
+            compact()
+        } else {
+            append(records, count)
+        }
+    }
+
+    private fun append(records: ByteArrayOutputStream, count: Int) {
+        try {
+            // Drop whatever follows the last readable record, it was cut short.
+            if (file.baseFile.exists() && file.baseFile.length() != validLength) {
+                RandomAccessFile(file.baseFile, "rw").use { it.setLength(validLength) }
+            }
+            FileOutputStream(file.baseFile, true).use { output ->
+                records.writeTo(output)
+                output.fd.sync()
+            }
+            validLength += records.size()
+            recordCount += count
+        } catch (e: IOException) {
+            Log.w(TAG, "Outbox can't be written", e)
+        }
+    }
+
+    // Rewrites the file with only the states waiting.
+    private fun compact() {
+        val entries = entries()
+        val records = ByteArrayOutputStream()
+        val compacted = LinkedHashMap<String, Entry>(entries.size * 4 / 3 + 1)
+        for ((key, entry) in entries) {
+            records.writeRecord { output ->
+                output.writeByte(RECORD_ADDED)
+                output.writeUTF(key)
+                output.writeInt(entry.state.severity)
+                output.writeString(entry.state.message)
+                output.writeString(entry.state.data)
+            }
+            compacted[key] = Entry(compacted.size, entry.state)
+        }
+        val stream = try {
+            file.startWrite()
+        } catch (e: IOException) {
+            Log.w(TAG, "Outbox can't be written", e)
+            return
+        }
+        try {
+            records.writeTo(stream)
+            file.finishWrite(stream)
+        } catch (e: IOException) {
+            file.failWrite(stream)
+            Log.w(TAG, "Outbox can't be written", e)
+            return
+        }
+        this.entries = compacted
+        nextSequence = compacted.size
+        recordCount = compacted.size
+        validLength = records.size().toLong()
+    }
+
+    private fun entries(): LinkedHashMap<String, Entry> {
+        entries?.let { return it }
+        val entries = LinkedHashMap<String, Entry>()
+        this.entries = entries
+        if (!file.baseFile.exists()) {
+            return entries
+        }
+        try {
+            DataInputStream(file.openRead().buffered()).use { input ->
+                while (true) {
+                    val content = input.readRecord() ?: break
+                    val record = DataInputStream(content.inputStream())
+                    when (record.readByte().toInt()) {
+                        RECORD_ADDED -> {
+                            val key = record.readUTF()
+                            val state = KeyedAppState.builder()
+                                .setKey(key)
+                                .setSeverity(record.readInt())
+                                .setMessage(record.readString())
+                                .setData(record.readString())
+                                .build()
+                            entries.remove(key)
+                            entries[key] = Entry(nextSequence++, state)
+                        }
+                        RECORD_SENT -> {
+                            val key = record.readUTF()
+                            if (entries[key]?.sequence == record.readInt()) {
+                                entries.remove(key)
+                            }
+                        }
+                        else -> break
+                    }
+                    recordCount++
+                    validLength += RECORD_OVERHEAD + content.size
+                }
+            }
+        } catch (e: IOException) {
+            Log.w(TAG, "Outbox can't be read", e)
+        }
+        return entries
+    }
+
+    // A record is its length, its content and a checksum of the content.
+    private inline fun ByteArrayOutputStream.writeRecord(write: (DataOutputStream) -> Unit) {
+        val content = ByteArrayOutputStream()
+        write(DataOutputStream(content))
+        val bytes = content.toByteArray()
+        val output = DataOutputStream(this)
+        output.writeInt(bytes.size)
+        output.write(bytes)
+        output.writeLong(hash(bytes))
+    }
+
+    // Returns the content of the next record, or null at the end of the log.
+    private fun DataInputStream.readRecord(): ByteArray? {
+        return try {
+            val length = readInt()
+            if (length < 0 || length > MAX_RECORD_LENGTH) {
+                return null
+            }
+            val content = ByteArray(length)
+            readFully(content)
+            if (readLong() != hash(content)) null else content
+        } catch (e: EOFException) {
+            null
+        }
+    }
+
+    private fun hash(bytes: ByteArray): Long {
+        val crc = CRC32()
+        crc.update(bytes)
+        return crc.value
+    }
+
+    private fun DataOutputStream.writeString(value: String?) {
+        writeBoolean(value != null)
+        if (value != null) {
+            writeUTF(value)
+        }
+    }
+
+    private fun DataInputStream.readString(): String? = if (readBoolean()) readUTF() else null
+
+    private companion object {
+        const val TAG = "FeedbackOutbox"
+
+        const val RECORD_ADDED = 1
+        const val RECORD_SENT = 2
+
+        // Length and checksum around the content of each record.
+        const val RECORD_OVERHEAD = 4 + 8
+
+        // Much more than a state can hold, anything longer is a corrupted length.
+        const val MAX_RECORD_LENGTH = 64 * 1024
+
+        // Obsolete records tolerated before rewriting the file.
+        const val COMPACTION_SLACK = 64
+    }
+}
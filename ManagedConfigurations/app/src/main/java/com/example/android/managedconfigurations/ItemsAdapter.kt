@@ -0,0 +1,59 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.managedconfigurations
+
+import android.view.ViewGroup
+import android.widget.TextView
+import androidx.core.widget.TextViewCompat
+import androidx.recyclerview.widget.RecyclerView
+
+/**
+ * Shows the complete entries of the items restriction, one row per entry. Entries missing values
+ * are skipped. Entries are only decoded when their row is displayed, and once to find the
+ * complete ones.
+ */
+class ItemsAdapter : RecyclerView.Adapter<ItemsAdapter.ViewHolder>() {
+
+    private var items: BundleArray<ManagedConfig.Item>? = null
+
+    class ViewHolder(val text: TextView) : RecyclerView.ViewHolder(text)
+
+    fun submit(items: BundleArray<ManagedConfig.Item>?) {
+        this.items = items
+        notifyDataSetChanged()
+    }
+
+    override fun onCreateViewHolder(parent: ViewGroup, viewType: Int): ViewHolder {
+        val text = TextView(parent.context)
+        text.layoutParams = RecyclerView.LayoutParams(
+            ViewGroup.LayoutParams.MATCH_PARENT,
+            ViewGroup.LayoutParams.WRAP_CONTENT
+        )
+        TextViewCompat.setTextAppearance(text, android.R.style.TextAppearance_Medium)
+        text.setPaddingRelative(
+            parent.resources.getDimensionPixelSize(R.dimen.margin_medium), 0, 0, 0
+        )
+        return ViewHolder(text)
+    }
+
+    override fun onBindViewHolder(holder: ViewHolder, position: Int) {
+        val item = items!!.getComplete(position)
+        holder.text.text = holder.text.context.getString(R.string.item, item.key, item.value)
+    }
+
+    override fun getItemCount(): Int = items?.completeCount ?: 0
+}
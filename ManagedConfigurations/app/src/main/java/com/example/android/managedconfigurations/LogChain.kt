@@ -0,0 +1,130 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.managedconfigurations
+
+import android.content.Context
+import com.example.android.common.logger.AsyncLogNode
+import com.example.android.common.logger.LevelFilterLogNode
+import com.example.android.common.logger.Log
+import com.example.android.common.logger.LogNode
+import com.example.android.common.logger.LogRecord
+import com.example.android.common.logger.LogWrapper
+import com.example.android.common.logger.MappedFileLogNode
+import com.example.android.common.logger.MessageOnlyLogFilter
+import java.io.File
+
+/**
+ * The logging chain shared by the whole process. It is published with Log.setLogNode once, and
+ * is made of a level filter, an [AsyncLogNode] and a [MappedFileLogNode], then logcat and the
+ * on-screen log of the activity currently shown.
+ *
+ * Activities come and go, through configuration changes too. They only point the chain at their
+ * view with [show], which builds the part of the chain behind the async node anew and swaps it
+ * in whole. The chain is never shut down: records still queued when the process dies are lost,
+ * the ones in the mapped file are written out by the kernel.
+ */
+class LogChain private constructor(context: Context) {
+
+    // Writes log data to memory-mapped files which outlive the process. Read them back with
+    // MappedFileLogReader(File(filesDir, LOG_DIRECTORY), LOG_NAME). Never linked to another
+    // node, each chain passes records to it on their way.
+    private val fileNode = MappedFileLogNode(File(context.filesDir, LOG_DIRECTORY), LOG_NAME)
+
+    // Hands log data over to a background thread, so callers don't wait for the chain.
+    private val asyncNode = AsyncLogNode(FileStage(fileNode, LogWrapper()))
+
+    // The view log data is shown in, guarded by this.
+    private var view: LogNode? = null
+
+    init {
+        // Drops levels nobody wants before they are queued. Registered with Log so that Log.d and
+        // friends return early for those levels; raise the priorities to quieten the log.
+        val levelFilter = LevelFilterLogNode(asyncNode, Log.DEBUG)
+        Log.setLevelFilter(levelFilter)
+        Log.setLogNode(levelFilter)
+    }
+
+    /**
+     * Shows the message text of the log data in [view] from now on, instead of the view passed
+     * before, or nowhere if null.
+     */
+    @Synchronized
+    fun show(view: LogNode?) {
+        this.view = view
+        // Built from its end, so that it is complete before the consumer thread sees it.
+        val logWrapper = LogWrapper()
+        if (view != null) {
+            // Filter strips out everything except the message text.
+            logWrapper.next = MessageOnlyLogFilter(view)
+        }
+        asyncNode.swapNext(FileStage(fileNode, logWrapper))
+    }
+
+    /**
+     * Stops showing log data in [view], unless another view has been passed to [show] since.
+     */
+    @Synchronized
+    fun hide(view: LogNode) {
+        if (this.view === view) {
+            show(null)
+        }
+    }
+
+    /**
+     * Writes records to [file], which is shared by all the chains, then passes them on to [next],
+     * which belongs to this chain only.
+     */
+    private class FileStage(
+        private val file: MappedFileLogNode,
+        private val next: LogNode
+    ) : LogNode {
+        override fun println(priority: Int, tag: String?, msg: String?, tr: Throwable?) {
+            val record = LogRecord.obtain(priority, tag, msg, tr)
+            try {
+                println(record)
+            } finally {
+                record.recycle()
+            }
+        }
+
+        override fun println(record: LogRecord) {
+            file.println(record)
+            next.println(record)
+        }
+    }
+
+    companion object {
+        const val LOG_DIRECTORY = "logs"
+        const val LOG_NAME = "log"
+
+        @Volatile
+        private var instance: LogChain? = null
+
+        /**
+         * Returns the chain shared by the whole process, publishing it on the first call.
+         */
+        fun get(context: Context): LogChain {
+            instance?.let { return it }
+            synchronized(this) {
+                instance?.let { return it }
+                val chain = LogChain(context.applicationContext)
+                instance = chain
+                return chain
+            }
+        }
+    }
+}
@@ -15,6 +15,7 @@
  */
 package com.example.android.managedconfigurations
 
+import android.content.pm.ApplicationInfo
 import android.os.Bundle
 import android.view.Menu
 import android.view.MenuItem
@@ -22,12 +23,13 @@ import android.widget.ViewAnimator
 import androidx.activity.enableEdgeToEdge
 import androidx.core.view.ViewCompat
 import androidx.core.view.WindowInsetsCompat
+import java.io.FileDescriptor
+import java.io.PrintWriter
 import com.example.android.managedconfigurations.databinding.ActivityMainBinding
 import com.example.android.common.activities.SampleActivityBase
 import com.example.android.common.logger.Log
 import com.example.android.common.logger.LogFragment
-import com.example.android.common.logger.LogWrapper
-import com.example.android.common.logger.MessageOnlyLogFilter
+import com.example.android.common.logger.LogNode
 
 /**
  * A simple launcher activity containing a summary sample description, sample log and a custom
@@ -43,8 +45,14 @@ class MainActivity : SampleActivityBase() {
 
     private lateinit var binding: ActivityMainBinding
 
+    // The on-screen log this activity passed to LogChain.show
+    private var logView: LogNode? = null
+
     override fun onCreate(savedInstanceState: Bundle?) {
         super.onCreate(savedInstanceState)
+        if (applicationInfo.flags and ApplicationInfo.FLAG_DEBUGGABLE != 0) {
+            PolicyMetrics.enabled = true
+        }
         enableEdgeToEdge()
         binding = ActivityMainBinding.inflate(layoutInflater)
         setContentView(binding.root)
@@ -61,6 +69,46 @@ class MainActivity : SampleActivityBase() {
         }
     }
 
+    override fun onDestroy() {
+        super.onDestroy()
+        // The chain outlives the activity, only the view goes. Left alone if the next instance
+        // of the activity has shown its own view already.
+        logView?.let { LogChain.get(this).hide(it) }
+        logView = null
+    }
+
+    /**
+     * Adds the policy metrics and feedback counters to `adb shell dumpsys activity <package>`.
+     * Options: `--metrics-json` prints the metrics as JSON, `--metrics-enable` and
+     * `--metrics-disable` switch measuring on and off, `--metrics-reset` clears them.
+     */
+    override fun dump(
+        prefix: String,
+        fd: FileDescriptor?,
+        writer: PrintWriter,
+        args: Array<out String>?
+    ) {
+        super.dump(prefix, fd, writer, args)
+        val options = args.orEmpty()
+        if ("--metrics-enable" in options) {
+            PolicyMetrics.enabled = true
+        }
+        if ("--metrics-disable" in options) {
+            PolicyMetrics.enabled = false
+        }
+        if ("--metrics-reset" in options) {
+            PolicyMetrics.reset()
+        }
+        if ("--metrics-json" in options) {
+            writer.print(prefix)
+            writer.println(PolicyMetrics.toJson().toString())
+        } else {
+            PolicyMetrics.dump(prefix, writer)
+            // Not created for a dump, nothing has been reported if it doesn't exist yet.
+            EnterpriseReporter.peek()?.dump(prefix, writer)
+        }
+    }
+
     override fun onCreateOptionsMenu(menu: Menu): Boolean {
         menuInflater.inflate(R.menu.main, menu)
         return true
@@ -90,23 +138,16 @@ class MainActivity : SampleActivityBase() {
         }
 
     /**
-     * Create a chain of targets that will receive log data
+     * Points the process-wide logging chain, see [LogChain], at the on-screen log of this
+     * activity.
      */
     override fun initializeLogging() {
-        // Wraps Android's native log framework.
-        val logWrapper = LogWrapper()
-        // Using Log, front-end to the logging chain, emulates android.util.log method signatures.
-        Log.setLogNode(logWrapper)
-
-        // Filter strips out everything except the message text.
-        val msgFilter = MessageOnlyLogFilter()
-        logWrapper.next = msgFilter
-
-        // On screen logging via a fragment with a TextView.
+        // On screen logging via a fragment with a list of the most recent lines.
         val logFragment = supportFragmentManager
             .findFragmentById(R.id.log_fragment) as LogFragment?
-        logFragment?.let {
-            msgFilter.next = logFragment.logView
+        logView = logFragment?.logView
+        LogChain.get(this).show(logView)
+        if (logFragment != null) {
             Log.i(TAG, "Ready")
         }
     }
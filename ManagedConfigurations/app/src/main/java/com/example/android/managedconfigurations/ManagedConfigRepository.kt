@@ -0,0 +1,232 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.managedconfigurations
+
+import android.content.BroadcastReceiver
+import android.content.Context
+import android.content.Intent
+import android.content.IntentFilter
+import android.content.RestrictionsManager
+import android.os.Bundle
+import androidx.annotation.VisibleForTesting
+import com.example.android.common.logger.Log
+import java.io.File
+import java.util.concurrent.atomic.AtomicLong
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.channels.awaitClose
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.SharingStarted
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.callbackFlow
+import kotlinx.coroutines.flow.conflate
+import kotlinx.coroutines.flow.emitAll
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.flow.flowOn
+import kotlinx.coroutines.flow.map
+import kotlinx.coroutines.flow.stateIn
+import kotlinx.coroutines.launch
+
+/**
+ * Loads the restrictions of this app off the main thread, and reloads them whenever the device
+ * or profile owner changes them.
+ *
+ * Nothing is loaded until [config] is collected, and the restrictions broadcast is only listened
+ * to while it is. Device and profile owners often change several restrictions in a row, so
+ * broadcasts are coalesced by a [CoalescingScheduler], and changes arriving faster than they can
+ * be loaded are conflated, only the latest restrictions are loaded.
+ */
+class ManagedConfigRepository(
+    context: Context,
+    scope: CoroutineScope,
+    private val ioDispatcher: CoroutineDispatcher = Dispatchers.IO,
+    quietWindowMillis: Long = QUIET_WINDOW_MILLIS,
+    maxLatencyMillis: Long = MAX_LATENCY_MILLIS,
+) {
+
+    private val appContext = context.applicationContext
+
+    private val scheduler = CoalescingScheduler(quietWindowMillis, maxLatencyMillis)
+
+    /**
+     * Number of restrictions changed broadcasts received.
+     */
+    val broadcastCount: Long get() = scheduler.requestCount
+
+    /**
+     * Number of reloads the broadcasts resulted in.
+     */
+    val reloadCount: Long get() = scheduler.runCount
+
+    // Read from resources once, instead of parsing the manifest restrictions on every load.
+    private val defaults by lazy { ManagedConfig.defaults(appContext.resources) }
+
+    // Last known good restrictions, shown until the current ones have been read.
+    private val snapshot by lazy {
+        RestrictionsSnapshot(File(appContext.noBackupFilesDir, SNAPSHOT_NAME))
+    }
+
+    // When the first broadcast not yet loaded was received, or 0 if there is none.
+    private val broadcastNanos = AtomicLong()
+
+    // The config loaded because of a broadcast, and when that broadcast was received.
+    @Volatile
+    private var broadcastConfig: Pair<ManagedConfig, Long>? = null
+
+    // Only touched by the loading coroutine, which runs one load at a time.
+    private var lastRestrictions: Bundle? = null
+    private var lastConfig: ManagedConfig? = null
+
+    private val changes: Flow<Unit> = callbackFlow {
+        val receiver = object : BroadcastReceiver() {
+            override fun onReceive(context: Context, intent: Intent) {
+                if (PolicyMetrics.enabled) {
+                    broadcastNanos.compareAndSet(0, System.nanoTime())
+                }
+                scheduler.request()
+            }
+        }
+        appContext.registerReceiver(
+            receiver,
+            IntentFilter(Intent.ACTION_APPLICATION_RESTRICTIONS_CHANGED)
+        )
+        // Changes made while nobody was listening were missed, so always start with a load.
+        trySend(Unit)
+        launch { scheduler.run { send(Unit) } }
+        awaitClose { appContext.unregisterReceiver(receiver) }
+    }.conflate()
+
+    /**
+     * The current restrictions, or null until they have been loaded for the first time. On a
+     * cold start, the restrictions saved by the previous process come first, followed by the
+     * current ones if they differ.
+     */
+    val config: StateFlow<ManagedConfig?> = flow {
+        if (lastConfig == null) {
+            loadSnapshot()?.let { emit(it) }
+        }
+        emitAll(changes.map { load() })
+    }
+        .flowOn(ioDispatcher)
+        .stateIn(scope, SharingStarted.WhileSubscribed(STOP_TIMEOUT_MILLIS), null)
+
+    /**
+     * Called by the UI once it shows [config], to measure how long after the broadcast that
+     * caused it that was.
+     */
+    fun onConfigShown(config: ManagedConfig) {
+        val (pending, receivedNanos) = broadcastConfig ?: return
+        if (pending === config) {
+            broadcastConfig = null
+            PolicyMetrics.broadcastToUi.record(System.nanoTime() - receivedNanos)
+        }
+    }
+
+    private fun load(): ManagedConfig {
+        val receivedNanos = broadcastNanos.getAndSet(0)
+        val previous = lastConfig
+        val config = PolicyMetrics.measure(PolicyMetrics.resolve) {
+            resolve()
+        }
+        // Broadcasts which didn't change anything never reach the UI.
+        if (receivedNanos != 0L && config !== previous) {
+            broadcastConfig = Pair(config, receivedNanos)
+        }
+        return config
+    }
+
+    private fun resolve(): ManagedConfig {
+        val manager =
+            appContext.getSystemService(Context.RESTRICTIONS_SERVICE) as RestrictionsManager
+        return resolve(manager.applicationRestrictions)
+    }
+
+    /**
+     * Turns the restrictions into a config, reusing the previous config if the restrictions
+     * haven't changed, and saves them for the next cold start if they have.
+     */
+    @VisibleForTesting
+    internal fun resolve(restrictions: Bundle?): ManagedConfig {
+        lastConfig?.let {
+            if (BundleDiff.bundlesEqual(lastRestrictions, restrictions)) {
+                return it
+            }
+        }
+        if (Log.isLoggable(Log.DEBUG, TAG)) {
+            // Diffed here, the message may be built on another thread once these have changed.
+            val changed = BundleDiff.changedKeys(lastRestrictions, restrictions)
+            Log.printlnLazy(Log.DEBUG, TAG) { "changed: $changed" }
+        }
+        val previous = lastConfig
+        var config = ManagedConfig.decode(restrictions, defaults)
+        // Unchanged items keep their array, which the UI compares by identity.
+        if (previous != null &&
+            BundleDiff.valueEqual(lastRestrictions, restrictions, ManagedConfig.KEY_ITEMS)
+        ) {
+            config = config.copy(items = previous.items)
+        }
+        lastRestrictions = restrictions
+        lastConfig = config
+        snapshot.write(restrictions)
+        return config
+    }
+
+    private fun loadSnapshot(): ManagedConfig? {
+        val restrictions = snapshot.read() ?: return null
+        val config = ManagedConfig.decode(restrictions, defaults)
+        lastRestrictions = restrictions
+        lastConfig = config
+        return config
+    }
+
+    companion object {
+        private const val TAG = "ManagedConfigRepository"
+
+        // Keeps listening for a while after the last collector goes away, so that configuration
+        // changes don't restart the broadcast receiver and reload the restrictions.
+        private const val STOP_TIMEOUT_MILLIS = 5_000L
+
+        private const val SNAPSHOT_NAME = "restrictions.snapshot"
+
+        // A burst of broadcasts is reloaded once it has been quiet for this long...
+        private const val QUIET_WINDOW_MILLIS = 300L
+
+        // ...or this long after its first broadcast, if it keeps going.
+        private const val MAX_LATENCY_MILLIS = 2_000L
+
+        @Volatile
+        private var instance: ManagedConfigRepository? = null
+
+        /**
+         * Returns the repository shared by the whole process.
+         */
+        fun get(context: Context): ManagedConfigRepository {
+            instance?.let { return it }
+            synchronized(this) {
+                instance?.let { return it }
+                val repository = ManagedConfigRepository(
+                    context,
+                    CoroutineScope(SupervisorJob() + Dispatchers.Main.immediate)
+                )
+                instance = repository
+                return repository
+            }
+        }
+    }
+}
@@ -15,12 +15,6 @@
  */
 package com.example.android.managedconfigurations
 
-import android.content.BroadcastReceiver
-import android.content.Context
-import android.content.Intent
-import android.content.IntentFilter
-import android.content.RestrictionEntry
-import android.content.RestrictionsManager
 import android.os.Build
 import android.os.Bundle
 import android.view.LayoutInflater
@@ -28,9 +22,15 @@ import android.view.View
 import android.view.ViewGroup
 import android.widget.Toast
 import androidx.fragment.app.Fragment
+import androidx.lifecycle.Lifecycle
+import androidx.lifecycle.lifecycleScope
+import androidx.lifecycle.repeatOnLifecycle
+import androidx.recyclerview.widget.ConcatAdapter
+import androidx.recyclerview.widget.LinearLayoutManager
 import com.example.android.managedconfigurations.databinding.FragmentManagedConfigurationsBinding
+import com.example.android.managedconfigurations.databinding.ManagedConfigurationsHeaderBinding
 import com.example.android.common.logger.Log
-import java.lang.StringBuilder
+import kotlinx.coroutines.launch
 
 /**
  * Pressing the button on this fragment pops up a simple Toast message. The button is enabled or
@@ -41,13 +41,23 @@ class ManagedConfigurationsFragment : Fragment(), View.OnClickListener {
     // Message to show when the button is clicked (String restriction)
     private var message: String? = null
 
-    // Observes restriction changes
-    private var broadcastReceiver: BroadcastReceiver? = null
+    // Restrictions the views were last bound to, null until the views have been bound
+    private var boundConfig: ManagedConfig? = null
+
+    // Shows the entries of the items restriction
+    private val itemsAdapter = ItemsAdapter()
 
     private var _binding: FragmentManagedConfigurationsBinding? = null
 
-    // This property is only valid between onCreateView and onDestroyView.
+    // The views showing the other restrictions, the first row of the item list
+    private var _header: ManagedConfigurationsHeaderBinding? = null
+
+    // Sets the texts of the views above, created and dropped with them
+    private var binder: ViewBinder? = null
+
+    // These properties are only valid between onCreateView and onDestroyView.
     private val binding get() = _binding!!
+    private val header get() = _header!!
 
     override fun onCreateView(
         inflater: LayoutInflater,
@@ -55,176 +65,135 @@ class ManagedConfigurationsFragment : Fragment(), View.OnClickListener {
         savedInstanceState: Bundle?
     ): View {
         _binding = FragmentManagedConfigurationsBinding.inflate(inflater, container, false)
+        _header = ManagedConfigurationsHeaderBinding.inflate(inflater, binding.items, false)
         return binding.root
     }
 
     override fun onViewCreated(view: View, savedInstanceState: Bundle?) {
-        binding.sayHello.setOnClickListener(this)
+        binder = ViewBinder(resources)
+        header.sayHello.setOnClickListener(this)
+        val headerAdapter = HeaderAdapter(header.root)
+        binding.items.layoutManager = LinearLayoutManager(requireContext())
         if (BUNDLE_SUPPORTED) {
-            binding.yourItems.visibility = View.VISIBLE
+            header.yourItems.visibility = View.VISIBLE
+            binding.items.adapter = ConcatAdapter(headerAdapter, itemsAdapter)
         } else {
-            binding.yourItems.visibility = View.GONE
+            header.yourItems.visibility = View.GONE
+            binding.items.adapter = headerAdapter
         }
-    }
-
-    override fun onResume() {
-        super.onResume()
-        resolveRestrictions()
-    }
-
-    override fun onStart() {
-        super.onStart()
-        broadcastReceiver = object : BroadcastReceiver() {
-            override fun onReceive(context: Context, intent: Intent) {
-                resolveRestrictions()
+        val repository = ManagedConfigRepository.get(requireContext())
+        viewLifecycleOwner.lifecycleScope.launch {
+            viewLifecycleOwner.repeatOnLifecycle(Lifecycle.State.STARTED) {
+                repository.config.collect { config ->
+                    if (config != null) {
+                        bind(config)
+                        repository.onConfigShown(config)
+                    }
+                }
             }
         }
-        requireActivity().registerReceiver(
-            broadcastReceiver,
-            IntentFilter(Intent.ACTION_APPLICATION_RESTRICTIONS_CHANGED)
-        )
-    }
-
-    override fun onStop() {
-        super.onStop()
-        if (broadcastReceiver != null) {
-            requireActivity().unregisterReceiver(broadcastReceiver)
-            broadcastReceiver = null
-        }
     }
 
     override fun onDestroyView() {
         super.onDestroyView()
+        binding.items.adapter = null
+        _header = null
         _binding = null
+        binder = null
+        boundConfig = null
     }
 
-    private fun resolveRestrictions() {
-        val manager =
-            requireActivity().getSystemService(Context.RESTRICTIONS_SERVICE) as RestrictionsManager
-        val restrictions = manager.applicationRestrictions
-        val entries = manager.getManifestRestrictions(
-            requireActivity().applicationContext.packageName
-        )
+    /**
+     * Updates the views for the restrictions that changed since the last time. The first time
+     * after the views are created, all of them are updated. The feedback for all of the changes
+     * is sent to device management apps at once.
+     */
+    private fun bind(config: ManagedConfig) {
+        if (binder == null) {
+            return
+        }
+        EnterpriseReporter.get(requireContext()).batch {
+            bindChanges(config)
+        }
+    }
 
-        for (entry in entries) {
-            val key = entry.key
-            Log.d(TAG, "key: $key")
-            when (key) {
-                KEY_CAN_SAY_HELLO -> {
-                    updateCanSayHello(entry, restrictions)
-                }
-                KEY_MESSAGE -> {
-                    updateMessage(entry, restrictions)
-                }
-                KEY_NUMBER -> {
-                    updateNumber(entry, restrictions)
-                }
-                KEY_RANK -> {
-                    updateRank(entry, restrictions)
-                }
-                KEY_APPROVALS -> {
-                    updateApprovals(entry, restrictions)
-                }
-                KEY_ITEMS -> {
-                    updateItems(restrictions)
-                }
-            }
+    private fun bindChanges(config: ManagedConfig) {
+        val old = boundConfig
+        boundConfig = config
+        if (old == null || old.canSayHello != config.canSayHello) {
+            PolicyMetrics.measure(UPDATE_CAN_SAY_HELLO) { updateCanSayHello(config.canSayHello) }
+        }
+        if (old == null || old.message != config.message) {
+            PolicyMetrics.measure(UPDATE_MESSAGE) { updateMessage(config.message) }
+        }
+        if (old == null || old.number != config.number) {
+            PolicyMetrics.measure(UPDATE_NUMBER) { updateNumber(config.number) }
+        }
+        if (old == null || old.rank != config.rank) {
+            PolicyMetrics.measure(UPDATE_RANK) { updateRank(config.rank) }
+        }
+        if (old == null || old.approvals != config.approvals) {
+            PolicyMetrics.measure(UPDATE_APPROVALS) { updateApprovals(config.approvals) }
+        }
+        // By identity, the repository keeps the array of unchanged items.
+        if (old == null || old.items !== config.items) {
+            PolicyMetrics.measure(UPDATE_ITEMS) { updateItems(config.items) }
         }
     }
 
-    private fun updateCanSayHello(entry: RestrictionEntry, restrictions: Bundle?) {
-        val canSayHello =
-            if (restrictions == null || !restrictions.containsKey(KEY_CAN_SAY_HELLO)) {
-                entry.selectedState
-            } else {
-                restrictions.getBoolean(KEY_CAN_SAY_HELLO)
-            }
-        activity?.enterpriseFeedback(KEY_CAN_SAY_HELLO, "Value is $canSayHello", "$canSayHello")
-        binding.sayHello.setText(
+    private fun updateCanSayHello(canSayHello: Boolean) {
+        Log.d(TAG, "key: ${ManagedConfig.KEY_CAN_SAY_HELLO}")
+        activity?.enterpriseFeedback(
+            ManagedConfig.KEY_CAN_SAY_HELLO,
+            "Value is $canSayHello",
+            "$canSayHello"
+        )
+        val binder = binder ?: return
+        binder.setText(
+            header.sayHello,
             if (canSayHello) {
                 R.string.explanation_can_say_hello_true
             } else {
                 R.string.explanation_can_say_hello_false
             }
         )
-        binding.sayHello.isEnabled = canSayHello
+        binder.setEnabled(header.sayHello, canSayHello)
     }
 
-    private fun updateMessage(entry: RestrictionEntry, restrictions: Bundle?) {
-        message =
-            if (restrictions == null || !restrictions.containsKey(KEY_MESSAGE)) {
-                entry.selectedString
-            } else {
-                restrictions.getString(KEY_MESSAGE)
-            }
-        activity?.enterpriseFeedback(KEY_MESSAGE, "Value is $message", "$message")
+    private fun updateMessage(message: String?) {
+        Log.d(TAG, "key: ${ManagedConfig.KEY_MESSAGE}")
+        this.message = message
+        activity?.enterpriseFeedback(ManagedConfig.KEY_MESSAGE, "Value is $message", "$message")
     }
 
-    private fun updateNumber(entry: RestrictionEntry, restrictions: Bundle?) {
-        val number = if (restrictions == null || !restrictions.containsKey(KEY_NUMBER)) {
-            entry.intValue
-        } else {
-            restrictions.getInt(KEY_NUMBER)
-        }
-        binding.yourNumber.text = getString(R.string.your_number, number)
+    private fun updateNumber(number: Int) {
+        Log.d(TAG, "key: ${ManagedConfig.KEY_NUMBER}")
+        binder?.setText(header.yourNumber, R.string.your_number, number)
     }
 
-    private fun updateRank(entry: RestrictionEntry, restrictions: Bundle?) {
-        val rank = if (restrictions == null || !restrictions.containsKey(KEY_RANK)) {
-            entry.selectedString
-        } else {
-            restrictions.getString(KEY_RANK)
-        }
-        binding.yourRank.text = getString(R.string.your_rank, rank)
+    private fun updateRank(rank: String?) {
+        Log.d(TAG, "key: ${ManagedConfig.KEY_RANK}")
+        binder?.setText(header.yourRank, R.string.your_rank, rank)
     }
 
-    private fun updateApprovals(entry: RestrictionEntry, restrictions: Bundle?) {
-        val approvals = if (restrictions == null || !restrictions.containsKey(KEY_APPROVALS)) {
-            entry.allSelectedStrings
-        } else {
-            restrictions.getStringArray(KEY_APPROVALS)
-        }
-        val text: String = if (approvals.isNullOrEmpty()) {
+    private fun updateApprovals(approvals: Selection) {
+        Log.d(TAG, "key: ${ManagedConfig.KEY_APPROVALS}")
+        val text: String = if (approvals.isEmpty()) {
             getString(R.string.none)
         } else {
             approvals.joinToString(", ")
         }
-        binding.approvalsYouHave.text = getString(R.string.approvals_you_have, text)
+        binder?.setText(header.approvalsYouHave, R.string.approvals_you_have, text)
     }
 
-    private fun updateItems(restrictions: Bundle?) {
+    private fun updateItems(items: BundleArray<ManagedConfig.Item>?) {
         if (!BUNDLE_SUPPORTED) {
             return
         }
-        val builder = StringBuilder()
-        if (restrictions != null) {
-            val parcelables = restrictions.getParcelableArray(KEY_ITEMS)
-            if (!parcelables.isNullOrEmpty()) {
-                val items = arrayOfNulls<Bundle>(parcelables.size)
-                for (i in parcelables.indices) {
-                    items[i] = parcelables[i] as Bundle
-                }
-                var first = true
-                for (item in items) {
-                    if (!item!!.containsKey(KEY_ITEM_KEY) || !item.containsKey(KEY_ITEM_VALUE)) {
-                        continue
-                    }
-                    if (first) {
-                        first = false
-                    } else {
-                        builder.append(", ")
-                    }
-                    builder.append(item.getString(KEY_ITEM_KEY))
-                    builder.append(":")
-                    builder.append(item.getString(KEY_ITEM_VALUE))
-                }
-            } else {
-                builder.append(getString(R.string.none))
-            }
-        } else {
-            builder.append(getString(R.string.none))
-        }
-        binding.yourItems.text = getString(R.string.your_items, builder)
+        Log.d(TAG, "key: ${ManagedConfig.KEY_ITEMS}")
+        val count = if (items == null) getString(R.string.none) else items.completeCount.toString()
+        binder?.setText(header.yourItems, R.string.your_items, count)
+        itemsAdapter.submit(items)
     }
 
     override fun onClick(view: View) {
@@ -242,14 +211,14 @@ class ManagedConfigurationsFragment : Fragment(), View.OnClickListener {
     companion object {
         // Tag for the logger
         private const val TAG = "ManagedConfigurations"
-        private const val KEY_CAN_SAY_HELLO = "can_say_hello"
-        private const val KEY_MESSAGE = "message"
-        private const val KEY_NUMBER = "number"
-        private const val KEY_RANK = "rank"
-        private const val KEY_APPROVALS = "approvals"
-        private const val KEY_ITEMS = "items"
-        private const val KEY_ITEM_KEY = "key"
-        private const val KEY_ITEM_VALUE = "value"
         private val BUNDLE_SUPPORTED = Build.VERSION.SDK_INT >= 23
+
+        // How long each update handler takes
+        private val UPDATE_CAN_SAY_HELLO = PolicyMetrics.histogram("updateCanSayHello")
+        private val UPDATE_MESSAGE = PolicyMetrics.histogram("updateMessage")
+        private val UPDATE_NUMBER = PolicyMetrics.histogram("updateNumber")
+        private val UPDATE_RANK = PolicyMetrics.histogram("updateRank")
+        private val UPDATE_APPROVALS = PolicyMetrics.histogram("updateApprovals")
+        private val UPDATE_ITEMS = PolicyMetrics.histogram("updateItems")
     }
 }
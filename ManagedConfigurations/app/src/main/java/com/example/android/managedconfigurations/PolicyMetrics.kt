@@ -0,0 +1,130 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.managedconfigurations
+
+import java.io.PrintWriter
+import java.util.Locale
+import java.util.concurrent.ConcurrentHashMap
+import org.json.JSONObject
+
+/**
+ * How long applying the restrictions takes, by step, kept in memory for the life of the process.
+ *
+ * Print it with `adb shell dumpsys activity com.example.android.managedconfigurations`, see
+ * [MainActivity.dump] for the options. Nothing is measured unless [enabled] is set, which it is
+ * by default on debuggable builds.
+ */
+object PolicyMetrics {
+
+    /**
+     * Whether durations are measured. When not, [measure] only costs reading this flag.
+     */
+    @Volatile
+    var enabled = false
+
+    private val histograms = ConcurrentHashMap<String, LatencyHistogram>()
+
+    /**
+     * Reading the restrictions and decoding them, in [ManagedConfigRepository].
+     */
+    val resolve = histogram("resolve")
+
+    /**
+     * From the first broadcast of a burst to the views showing the restrictions it changed.
+     */
+    val broadcastToUi = histogram("broadcastToUi")
+
+    /**
+     * Returns the histogram with the given name, creating it the first time.
+     */
+    fun histogram(name: String): LatencyHistogram =
+        histograms[name] ?: histograms.putIfAbsent(name, LatencyHistogram())
+            ?: histograms.getValue(name)
+
+    /**
+     * Runs [block], recording how long it took if metrics are enabled.
+     */
+    inline fun <T> measure(histogram: LatencyHistogram, block: () -> T): T {
+        if (!enabled) {
+            return block()
+        }
+        val start = System.nanoTime()
+        try {
+            return block()
+        } finally {
+            histogram.record(System.nanoTime() - start)
+        }
+    }
+
+    fun reset() {
+        for (histogram in histograms.values) {
+            histogram.reset()
+        }
+    }
+
+    /**
+     * Prints one line per histogram, in milliseconds.
+     */
+    fun dump(prefix: String, writer: PrintWriter) {
+        writer.print(prefix)
+        writer.println("Policy metrics (" + (if (enabled) "enabled" else "disabled") + "):")
+        for (name in histograms.keys.sorted()) {
+            val histogram = histograms.getValue(name)
+            writer.print(prefix)
+            writer.println(
+                String.format(
+                    Locale.US,
+                    "  %s: count=%d mean=%.3fms p50=%.3fms p90=%.3fms p99=%.3fms max=%.3fms",
+                    name,
+                    histogram.count,
+                    millis(histogram.meanNanos),
+                    millis(histogram.percentileNanos(50.0)),
+                    millis(histogram.percentileNanos(90.0)),
+                    millis(histogram.percentileNanos(99.0)),
+                    millis(histogram.maxNanos),
+                )
+            )
+        }
+    }
+
+    /**
+     * Returns the histograms as JSON, durations in nanoseconds.
+     */
+    fun toJson(): JSONObject {
+        val json = JSONObject()
+        json.put("enabled", enabled)
+        val all = JSONObject()
+        for (name in histograms.keys.sorted()) {
+            val histogram = histograms.getValue(name)
+            all.put(
+                name,
+                JSONObject()
+                    .put("count", histogram.count)
+                    .put("meanNanos", histogram.meanNanos)
+                    .put("p50Nanos", histogram.percentileNanos(50.0))
+                    .put("p90Nanos", histogram.percentileNanos(90.0))
+                    .put("p99Nanos", histogram.percentileNanos(99.0))
+                    .put("p999Nanos", histogram.percentileNanos(99.9))
+                    .put("maxNanos", histogram.maxNanos)
+            )
+        }
+        json.put("histograms", all)
+        return json
+    }
+
+    private fun millis(nanos: Long) = nanos / 1_000_000.0
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.managedconfigurations
+
+import android.os.Bundle
+import android.os.Parcelable
+import androidx.core.util.AtomicFile
+import com.example.android.common.logger.Log
+import java.io.ByteArrayOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.io.IOException
+import java.util.zip.CRC32
+
+/**
+ * Keeps a copy of the last restrictions read from [android.content.RestrictionsManager] in a
+ * file, so that they can be shown at startup before the restrictions have been read again.
+ *
+ * The file holds the restrictions in a compact binary form, along with a hash of that content.
+ * The hash detects files which have been cut short or corrupted, and saves rewriting the file
+ * when the restrictions haven't changed.
+ *
+ * Only the value types restrictions are made of are supported: booleans, ints, strings, string
+ * arrays, bundles and bundle arrays. Restrictions holding anything else aren't saved.
+ */
+class RestrictionsSnapshot(file: File) {
+
+    private val file = AtomicFile(file)
+
+    // Hash of the content of the file, if known.
+    private var savedHash: Long? = null
+
+    /**
+     * Returns the restrictions saved in the file, or null if there are none or they can't be
+     * read.
+     */
+    @Synchronized
+    fun read(): Bundle? {
+        if (!file.baseFile.exists()) {
+            return null
+        }
+        return try {
+            DataInputStream(file.openRead().buffered()).use { input ->
+                if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                    return null
+                }
+                val hash = input.readLong()
+                val length = input.readInt()
+                if (length < 0 || length > file.baseFile.length()) {
+                    Log.w(TAG, "Snapshot is corrupted")
+                    return null
+                }
+                val content = ByteArray(length)
+                input.readFully(content)
+                if (hash(content) != hash) {
+                    Log.w(TAG, "Snapshot is corrupted")
+                    return null
+                }
+                val bundle = DataInputStream(content.inputStream()).readBundle()
+                savedHash = hash
+                bundle
+            }
+        } catch (e: IOException) {
+            Log.w(TAG, "Snapshot can't be read", e)
+            null
+        }
+    }
+
+    /**
+     * Saves the restrictions to the file, unless it already holds the same ones.
+     */
+    @Synchronized
+    fun write(restrictions: Bundle?) {
+        val content = ByteArrayOutputStream()
+        try {
+            DataOutputStream(content).writeBundle(restrictions ?: Bundle.EMPTY)
+        } catch (e: UnsupportedTypeException) {
+            Log.w(TAG, "Snapshot not saved: " + e.message)
+            return
+        }
+        val bytes = content.toByteArray()
+        val hash = hash(bytes)
+        if (hash == savedHash) {
+            return
+        }
+        val stream = try {
+            file.startWrite()
+        } catch (e: IOException) {
+            Log.w(TAG, "Snapshot can't be written", e)
+            return
+        }
+        try {
+            val output = DataOutputStream(stream)
+            output.writeInt(MAGIC)
+            output.writeInt(VERSION)
+            output.writeLong(hash)
+            output.writeInt(bytes.size)
+            output.write(bytes)
+            output.flush()
+            file.finishWrite(stream)
+            savedHash = hash
+        } catch (e: IOException) {
+            file.failWrite(stream)
+            Log.w(TAG, "Snapshot can't be written", e)
+        }
+    }
+
+    private class UnsupportedTypeException(message: String) : IOException(message)
+
+    private fun hash(bytes: ByteArray): Long {
+        val crc = CRC32()
+        crc.update(bytes)
+        return crc.value
+    }
+
+    @Suppress("DEPRECATION")
+    private fun DataOutputStream.writeBundle(bundle: Bundle) {
+        val keys = bundle.keySet()
+        writeInt(keys.size)
+        for (key in keys) {
+            writeString(key)
+            when (val value = bundle.get(key)) {
+                null -> writeByte(TYPE_NULL)
+                is Boolean -> {
+                    writeByte(TYPE_BOOLEAN)
+                    writeBoolean(value)
+                }
+                is Int -> {
+                    writeByte(TYPE_INT)
+                    writeInt(value)
+                }
+                is String -> {
+                    writeByte(TYPE_STRING)
+                    writeString(value)
+                }
+                is Bundle -> {
+                    writeByte(TYPE_BUNDLE)
+                    writeBundle(value)
+                }
+                is Array<*> -> if (value.isArrayOf<String>()) {
+                    writeByte(TYPE_STRING_ARRAY)
+                    writeInt(value.size)
+                    for (element in value) {
+                        writeString(element as String?)
+                    }
+                } else if (value.all { it is Bundle }) {
+                    writeByte(TYPE_BUNDLE_ARRAY)
+                    writeInt(value.size)
+                    for (element in value) {
+                        writeBundle(element as Bundle)
+                    }
+                } else {
+                    throw UnsupportedTypeException("$key holds an array of unsupported type")
+                }
+                else -> throw UnsupportedTypeException("$key holds a ${value.javaClass.name}")
+            }
+        }
+    }
+
+    private fun DataInputStream.readBundle(): Bundle {
+        val size = readInt()
+        val bundle = Bundle(size)
+        repeat(size) {
+            val key = readString() ?: throw IOException("Missing key")
+            when (val type = readByte().toInt()) {
+                TYPE_NULL -> bundle.putString(key, null)
+                TYPE_BOOLEAN -> bundle.putBoolean(key, readBoolean())
+                TYPE_INT -> bundle.putInt(key, readInt())
+                TYPE_STRING -> bundle.putString(key, readString())
+                TYPE_BUNDLE -> bundle.putBundle(key, readBundle())
+                TYPE_STRING_ARRAY -> bundle.putStringArray(key, Array(readInt()) { readString() })
+                TYPE_BUNDLE_ARRAY ->
+                    bundle.putParcelableArray(key, Array<Parcelable>(readInt()) { readBundle() })
+                else -> throw IOException("Unknown type $type")
+            }
+        }
+        return bundle
+    }
+
+    private fun DataOutputStream.writeString(value: String?) {
+        if (value == null) {
+            writeInt(-1)
+            return
+        }
+        val bytes = value.toByteArray(Charsets.UTF_8)
+        writeInt(bytes.size)
+        write(bytes)
+    }
+
+    private fun DataInputStream.readString(): String? {
+        val length = readInt()
+        if (length < 0) {
+            return null
+        }
+        val bytes = ByteArray(length)
+        readFully(bytes)
+        return String(bytes, Charsets.UTF_8)
+    }
+
+    companion object {
+        private const val TAG = "RestrictionsSnapshot"
+
+        // "MCFG"
+        private const val MAGIC = 0x4d434647
+        private const val VERSION = 1
+
+        private const val TYPE_NULL = 0
+        private const val TYPE_BOOLEAN = 1
+        private const val TYPE_INT = 2
+        private const val TYPE_STRING = 3
+        private const val TYPE_STRING_ARRAY = 4
+        private const val TYPE_BUNDLE = 5
+        private const val TYPE_BUNDLE_ARRAY = 6
+    }
+}
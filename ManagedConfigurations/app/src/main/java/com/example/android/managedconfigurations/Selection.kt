@@ -0,0 +1,155 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.managedconfigurations
+
+/**
+ * The values chosen for a multi-select restriction, held as one bit per entry value of the schema.
+ *
+ * Checking whether a value is chosen takes constant time, and comparing two selections of the same
+ * restriction, or finding what was added or removed between them, a few word operations. Values
+ * are iterated in the order of the schema.
+ */
+class Selection private constructor(
+    /**
+     * The entry values of the restriction, which bits are indexed against.
+     */
+    val choices: Choices,
+    private val words: LongArray,
+) : AbstractSet<String>() {
+
+    /**
+     * The entry values of a multi-select restriction, as listed in the schema. Create one per
+     * restriction and make all of its selections from it.
+     */
+    class Choices(values: Array<out String>) {
+
+        private val values: Array<String> = Array(values.size) { values[it] }
+
+        private val indices = HashMap<String, Int>(values.size * 4 / 3 + 1).apply {
+            for (i in values.indices) {
+                put(values[i], i)
+            }
+        }
+
+        internal val wordCount = (values.size + 63) ushr 6
+
+        /**
+         * Number of entry values.
+         */
+        val size: Int get() = values.size
+
+        /**
+         * Selection of none of the values.
+         */
+        val none = Selection(this, LongArray(wordCount))
+
+        /**
+         * Returns the position of the value in the schema, or -1 if it isn't an entry value.
+         */
+        fun indexOf(value: String): Int = indices[value] ?: -1
+
+        operator fun get(index: Int): String = values[index]
+
+        /**
+         * Returns the selection of the given values. Values which aren't entry values of the
+         * restriction are left out.
+         */
+        fun select(selected: Array<out String?>?): Selection {
+            if (selected.isNullOrEmpty()) {
+                return none
+            }
+            val words = LongArray(wordCount)
+            for (value in selected) {
+                val index = indices[value ?: continue] ?: continue
+                words[index ushr 6] = words[index ushr 6] or (1L shl index)
+            }
+            return Selection(this, words)
+        }
+    }
+
+    override val size: Int = words.sumOf { it.countOneBits() }
+
+    override fun isEmpty(): Boolean = size == 0
+
+    override fun contains(element: String): Boolean {
+        val index = choices.indexOf(element)
+        return index >= 0 && contains(index)
+    }
+
+    /**
+     * Returns whether the entry value at the given position is chosen.
+     */
+    fun contains(index: Int): Boolean = words[index ushr 6] and (1L shl index) != 0L
+
+    /**
+     * Returns the values chosen here but not in [old].
+     */
+    fun added(old: Selection): Selection = combine(old) { new, previous -> new and previous.inv() }
+
+    /**
+     * Returns the values chosen in [old] but not here.
+     */
+    fun removed(old: Selection): Selection =
+        combine(old) { new, previous -> previous and new.inv() }
+
+    override fun iterator(): Iterator<String> = object : Iterator<String> {
+        private var next = nextIndex(0)
+
+        override fun hasNext() = next >= 0
+
+        override fun next(): String {
+            if (next < 0) {
+                throw NoSuchElementException()
+            }
+            val value = choices[next]
+            next = nextIndex(next + 1)
+            return value
+        }
+    }
+
+    override fun equals(other: Any?): Boolean {
+        if (other is Selection && other.choices === choices) {
+            return words.contentEquals(other.words)
+        }
+        return super.equals(other)
+    }
+
+    override fun hashCode(): Int = super.hashCode()
+
+    private inline fun combine(old: Selection, op: (Long, Long) -> Long): Selection {
+        require(old.choices === choices) { "Selections of different restrictions" }
+        return Selection(choices, LongArray(words.size) { op(words[it], old.words[it]) })
+    }
+
+    // Position of the first chosen value at or after the given one, or -1.
+    private fun nextIndex(from: Int): Int {
+        var w = from ushr 6
+        if (w >= words.size) {
+            return -1
+        }
+        var word = words[w] and (-1L shl from)
+        while (true) {
+            if (word != 0L) {
+                return (w shl 6) + word.countTrailingZeroBits()
+            }
+            if (++w == words.size) {
+                return -1
+            }
+            word = words[w]
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.managedconfigurations
+
+import android.content.SharedPreferences
+import androidx.enterprise.feedback.KeyedAppState
+
+/**
+ * Remembers, for each key, a hash of the last keyed app state sent to device management apps and
+ * when it was sent, so that states which haven't changed since aren't sent again. The entries are
+ * kept in [SharedPreferences] and survive the process.
+ *
+ * An unchanged state is sent again once [heartbeatMillis] have passed since it was last sent, so
+ * that management apps which missed it or dropped it eventually get it. A heartbeat of 0 never
+ * sends unchanged states again.
+ *
+ * @param clock Returns the current time, in milliseconds since the epoch.
+ */
+class SentStatesCache(
+    private val prefs: SharedPreferences,
+    private val heartbeatMillis: Long = 0,
+    private val clock: () -> Long = System::currentTimeMillis,
+) {
+
+    private class Entry(val hash: Long, val sentAtMillis: Long)
+
+    // Read from prefs by the first call, then kept in step with it.
+    private var entries: HashMap<String, Entry>? = null
+
+    /**
+     * Returns the states which changed since they were last sent, or are due for a heartbeat.
+     */
+    @Synchronized
+    fun unsent(states: Collection<KeyedAppState>): List<KeyedAppState> {
+        val entries = entries()
+        val now = clock()
+        return states.filter { state ->
+            val entry = entries[state.key]
+            entry == null || entry.hash != hash(state) || isDue(entry, now)
+        }
+    }
+
+    /**
+     * Records that the states have just been sent.
+     */
+    @Synchronized
+    fun sent(states: Collection<KeyedAppState>) {
+        val entries = entries()
+        val now = clock()
+        val editor = prefs.edit()
+        for (state in states) {
+            val entry = Entry(hash(state), now)
+            entries[state.key] = entry
+            editor.putString(state.key, "${entry.hash}:${entry.sentAtMillis}")
+        }
+        editor.apply()
+    }
+
+    private fun isDue(entry: Entry, now: Long): Boolean {
+        if (heartbeatMillis <= 0) {
+            return false
+        }
+        // A clock set back makes the entry look sent in the future, send it again to be safe.
+        return now - entry.sentAtMillis >= heartbeatMillis || now < entry.sentAtMillis
+    }
+
+    private fun entries(): HashMap<String, Entry> {
+        entries?.let { return it }
+        val entries = HashMap<String, Entry>()
+        for ((key, value) in prefs.all) {
+            val parts = (value as? String)?.split(':')
+            val hash = parts?.getOrNull(0)?.toLongOrNull()
+            val sentAtMillis = parts?.getOrNull(1)?.toLongOrNull()
+            if (hash != null && sentAtMillis != null) {
+                entries[key] = Entry(hash, sentAtMillis)
+            }
+        }
+        this.entries = entries
+        return entries
+    }
+
+    private companion object {
+        const val FNV_OFFSET_BASIS = -0x340d631b7bdddcdbL
+        const val FNV_PRIME = 0x100000001b3L
+
+        // 64-bit FNV-1a of the content of the state, without allocating.
+        fun hash(state: KeyedAppState): Long {
+            var hash = FNV_OFFSET_BASIS
+            hash = (hash xor state.severity.toLong()) * FNV_PRIME
+            hash = hash(hash, state.message)
+            hash = hash(hash, state.data)
+            return hash
+        }
+
+        fun hash(seed: Long, value: String?): Long {
+            // Tells a null value apart from an empty one, and the fields from each other.
+            var hash = (seed xor (value?.length?.toLong() ?: -1L)) * FNV_PRIME
+            if (value != null) {
+                for (c in value) {
+                    hash = (hash xor c.code.toLong()) * FNV_PRIME
+                }
+            }
+            return hash
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.managedconfigurations
+
+import android.content.res.Resources
+import android.view.View
+import android.widget.TextView
+import androidx.annotation.StringRes
+
+/**
+ * Sets the text and enabled state of views, remembering the last value set on each view so that
+ * setting the same value again does nothing. Setting a TextView's text, even to the same text,
+ * makes it measure and lay out again.
+ *
+ * Texts made from a string resource and arguments are only formatted when the resource or the
+ * arguments differ from last time.
+ *
+ * Only use a binder from the UI thread, and for the views of one view hierarchy; drop it with the
+ * views.
+ */
+class ViewBinder(private val resources: Resources) {
+
+    private class Text(@StringRes val resId: Int, val args: Array<out Any?>, val text: CharSequence)
+
+    private val texts = HashMap<TextView, Text>()
+    private val enabled = HashMap<View, Boolean>()
+
+    /**
+     * Sets the text of the view to the string resource, formatted with the arguments.
+     */
+    fun setText(view: TextView, @StringRes resId: Int, vararg args: Any?) {
+        val last = texts[view]
+        if (last != null && last.resId == resId && last.args.contentEquals(args)) {
+            return
+        }
+        val text = if (args.isEmpty()) {
+            resources.getText(resId)
+        } else {
+            resources.getString(resId, *args)
+        }
+        val changed = last == null || last.text.toString() != text.toString()
+        texts[view] = Text(resId, args, text)
+        if (changed) {
+            view.text = text
+        }
+    }
+
+    fun setEnabled(view: View, isEnabled: Boolean) {
+        if (enabled[view] != isEnabled) {
+            enabled[view] = isEnabled
+            view.isEnabled = isEnabled
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.managedconfigurations
+
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.test.TestScope
+import kotlinx.coroutines.test.advanceTimeBy
+import kotlinx.coroutines.test.runCurrent
+import kotlinx.coroutines.test.runTest
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+/**
+ * Sends bursts of requests to a [CoalescingScheduler] on virtual time.
+ */
+@OptIn(ExperimentalCoroutinesApi::class)
+class CoalescingSchedulerTest {
+
+    private var runs = 0
+
+    @Test
+    fun runsOnceForABurst() = runTest {
+        val scheduler = startScheduler()
+
+        // A burst of broadcasts, closer together than the quiet window.
+        repeat(20) {
+            scheduler.request()
+            advanceTimeBy(QUIET_WINDOW_MILLIS / 2)
+        }
+        assertEquals(0, runs)
+
+        advanceTimeBy(QUIET_WINDOW_MILLIS)
+        runCurrent()
+        assertEquals(1, runs)
+        assertEquals(20L, scheduler.requestCount)
+        assertEquals(1L, scheduler.runCount)
+    }
+
+    @Test
+    fun runsABurstWhichNeverGoesQuietAfterTheMaxLatency() = runTest {
+        val scheduler = startScheduler()
+
+        scheduler.request()
+        repeat((MAX_LATENCY_MILLIS / (QUIET_WINDOW_MILLIS / 2)).toInt() - 1) {
+            advanceTimeBy(QUIET_WINDOW_MILLIS / 2)
+            scheduler.request()
+        }
+        advanceTimeBy(QUIET_WINDOW_MILLIS / 2 - 1)
+        assertEquals(0, runs)
+
+        advanceTimeBy(2)
+        assertEquals(1, runs)
+    }
+
+    @Test
+    fun dropsRequestsMadeBeforeItRuns() = runTest {
+        val scheduler = CoalescingScheduler(QUIET_WINDOW_MILLIS, MAX_LATENCY_MILLIS)
+        scheduler.request()
+        backgroundScope.launch { scheduler.run { runs++ } }
+
+        advanceTimeBy(MAX_LATENCY_MILLIS * 2)
+        assertEquals(0, runs)
+    }
+
+    private fun TestScope.startScheduler(): CoalescingScheduler {
+        val scheduler = CoalescingScheduler(QUIET_WINDOW_MILLIS, MAX_LATENCY_MILLIS)
+        backgroundScope.launch { scheduler.run { runs++ } }
+        runCurrent()
+        return scheduler
+    }
+
+    private companion object {
+        const val QUIET_WINDOW_MILLIS = 100L
+        const val MAX_LATENCY_MILLIS = 1_000L
+    }
+}
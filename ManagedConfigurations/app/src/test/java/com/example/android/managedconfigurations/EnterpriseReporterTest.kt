@@ -0,0 +1,245 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.managedconfigurations
+
+import android.content.Context
+import android.content.SharedPreferences
+import androidx.enterprise.feedback.FakeKeyedAppStatesReporter
+import androidx.enterprise.feedback.KeyedAppState
+import androidx.enterprise.feedback.KeyedAppStatesCallback
+import androidx.enterprise.feedback.KeyedAppStatesReporter
+import java.io.File
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.test.StandardTestDispatcher
+import kotlinx.coroutines.test.TestScope
+import kotlinx.coroutines.test.runCurrent
+import kotlinx.coroutines.test.runTest
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.RuntimeEnvironment
+import org.robolectric.annotation.Config
+
+/**
+ * Sends feedback through [EnterpriseReporter] to a [FakeKeyedAppStatesReporter], with the outbox
+ * in a temporary file and the flusher on virtual time.
+ */
+@OptIn(ExperimentalCoroutinesApi::class)
+@RunWith(RobolectricTestRunner::class)
+@Config(sdk = [34])
+class EnterpriseReporterTest {
+
+    @get:Rule
+    val folder = TemporaryFolder()
+
+    private val outboxFile: File by lazy { File(folder.root, "feedback.outbox") }
+
+    @Test
+    fun sendsABatchInOneCall() = runTest {
+        val fake = FakeKeyedAppStatesReporter()
+        val reporter = newReporter(fake)
+
+        reporter.batch {
+            reporter.report(state("a", "1"))
+            reporter.report(state("b", "1"))
+            reporter.report(state("a", "2"))
+        }
+        settle()
+
+        assertEquals(1L, reporter.sendCount)
+        assertEquals(2, fake.states.size)
+        assertEquals("2", fake.keyedStates["a"]!!.data)
+        assertEquals(0, reporter.queueDepth)
+        assertEquals(0, FeedbackOutbox(outboxFile).size)
+    }
+
+    @Test
+    fun sendsStatesReportedOutsideABatchTogether() = runTest {
+        val fake = FakeKeyedAppStatesReporter()
+        val reporter = newReporter(fake)
+
+        reporter.report(state("a", "1"))
+        reporter.report(state("b", "1"))
+        runCurrent()
+        assertEquals(0, fake.states.size)
+        assertEquals(2, reporter.queueDepth)
+
+        settle()
+        assertEquals(1L, reporter.sendCount)
+        assertEquals(2, fake.states.size)
+    }
+
+    @Test
+    fun unsentStatesAreSentByTheNextProcess() = runTest {
+        val failing = StatusReporter(KeyedAppStatesCallback.STATUS_UNKNOWN_ERROR)
+        val first = newReporter(failing)
+        first.batch {
+            first.report(state("a", "1"))
+            first.report(state("b", "1"))
+        }
+        runCurrent()
+        assertEquals(2, first.queueDepth)
+
+        val fake = FakeKeyedAppStatesReporter()
+        val second = newReporter(fake)
+        second.flush()
+        settle()
+
+        assertEquals(setOf("a", "b"), fake.keyedStates.keys)
+        assertEquals(0, second.queueDepth)
+        assertEquals(0, FeedbackOutbox(outboxFile).size)
+    }
+
+    @Test
+    fun retriesWhenTheBufferIsFull() = runTest {
+        val fake = StatusReporter(KeyedAppStatesCallback.STATUS_EXCEEDED_BUFFER_ERROR, 2)
+        val reporter = newReporter(fake)
+
+        reporter.batch { reporter.report(state("a", "1")) }
+        runCurrent()
+        assertEquals(0, fake.states.size)
+        assertEquals(1, reporter.queueDepth)
+
+        settle()
+        assertEquals(2L, reporter.retryCount)
+        assertEquals(1, fake.states.size)
+        assertEquals(0, reporter.queueDepth)
+    }
+
+    @Test
+    fun retriesWhenNoAnswerComes() = runTest {
+        val fake = StatusReporter(NO_ANSWER, 1)
+        val reporter = newReporter(fake)
+
+        reporter.batch { reporter.report(state("a", "1")) }
+        settle()
+
+        assertEquals(2L, reporter.sendCount)
+        assertEquals(1L, reporter.retryCount)
+        assertEquals(1, fake.states.size)
+        assertEquals(0, reporter.queueDepth)
+    }
+
+    @Test
+    fun suppressedStatesClearTheirStaleStateFromTheOutbox() = runTest {
+        val fake = StatusReporter(KeyedAppStatesCallback.STATUS_UNKNOWN_ERROR, 0)
+        val reporter = newReporter(fake, SentStatesCache(newPrefs()))
+
+        reporter.batch { reporter.report(state("a", "1")) }
+        settle()
+        fake.failures = 1
+        reporter.batch { reporter.report(state("a", "2")) }
+        settle()
+        assertEquals(1, reporter.queueDepth)
+
+        // Back to what the management apps already hold, the state waiting is no longer wanted.
+        reporter.batch { reporter.report(state("a", "1")) }
+        settle()
+
+        assertEquals(1L, reporter.suppressedCount)
+        assertEquals("1", fake.keyedStates["a"]!!.data)
+        assertEquals(0, reporter.queueDepth)
+        assertEquals(0, FeedbackOutbox(outboxFile).size)
+    }
+
+    @Test
+    fun splitsLargeBatches() = runTest {
+        val fake = FakeKeyedAppStatesReporter()
+        val reporter = newReporter(fake)
+        val data = "x".repeat(KeyedAppState.MAX_DATA_LENGTH)
+
+        reporter.batch {
+            for (i in 0 until 200) {
+                reporter.report(state("key$i", data))
+            }
+        }
+        settle()
+
+        assertTrue(reporter.sendCount > 1)
+        assertEquals(200, fake.keyedStates.size)
+    }
+
+    @Test
+    fun outboxSurvivesATornWrite() {
+        val outbox = FeedbackOutbox(outboxFile)
+        outbox.add(listOf(state("a", "1"), state("b", "1")))
+        outbox.add(listOf(state("a", "2")))
+        outbox.remove(outbox.states().filter { it.key == "b" })
+        // The process died halfway through appending a record.
+        outboxFile.appendBytes(byteArrayOf(0, 0, 0, 42, 1, 2))
+
+        val reopened = FeedbackOutbox(outboxFile)
+        assertEquals(listOf("a" to "2"), reopened.states().map { it.key to it.data })
+
+        reopened.add(listOf(state("c", "1")))
+        assertEquals(listOf("a", "c"), FeedbackOutbox(outboxFile).states().map { it.key })
+    }
+
+    private fun TestScope.newReporter(
+        reporter: KeyedAppStatesReporter,
+        cache: SentStatesCache? = null,
+    ) = EnterpriseReporter(
+        reporter,
+        FeedbackOutbox(outboxFile),
+        backgroundScope,
+        ioDispatcher = StandardTestDispatcher(testScheduler),
+        cache = cache,
+    )
+
+    private fun newPrefs(): SharedPreferences = RuntimeEnvironment.getApplication()
+        .getSharedPreferences("sent_states", Context.MODE_PRIVATE)
+
+    private fun state(key: String, data: String): KeyedAppState = KeyedAppState.builder()
+        .setKey(key)
+        .setSeverity(KeyedAppState.SEVERITY_INFO)
+        .setMessage("Value of $key")
+        .setData(data)
+        .build()
+
+    /**
+     * Answers the next [failures] calls with [status], or not at all for [NO_ANSWER], and takes
+     * the states of the following ones.
+     */
+    private class StatusReporter(
+        private val status: Int,
+        var failures: Int = Int.MAX_VALUE,
+    ) : FakeKeyedAppStatesReporter() {
+
+        override fun setStates(
+            states: Collection<KeyedAppState>,
+            callback: KeyedAppStatesCallback?
+        ) {
+            if (failures > 0) {
+                failures--
+                if (status != NO_ANSWER) {
+                    callback?.onResult(status, null)
+                }
+            } else {
+                super.setStates(states, callback)
+            }
+        }
+    }
+
+    private companion object {
+        // Not a status, has StatusReporter leave the callback uncalled.
+        const val NO_ANSWER = -1
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.managedconfigurations
+
+import androidx.enterprise.feedback.FakeKeyedAppStatesReporter
+import androidx.enterprise.feedback.KeyedAppState
+import androidx.enterprise.feedback.KeyedAppStatesCallback
+import java.io.File
+import kotlinx.coroutines.test.StandardTestDispatcher
+import kotlinx.coroutines.test.runTest
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Rule
+import org.junit.Test
+import org.junit.experimental.categories.Category
+import org.junit.rules.TemporaryFolder
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+
+/**
+ * Sends bursts of keyed app states of increasing size to [FakeKeyedAppStatesReporter]s, the way
+ * `enterpriseFeedback` used to, with a new reporter and a `setStates` call per state, see
+ * [reportPerCall], and through the shared [EnterpriseReporter], in one batch.
+ *
+ * For each burst size and way, prints the time from the first state reported to the last one
+ * received, the resulting states per second, the memory allocated per state and the number of
+ * `setStates` calls, one line per size and way, to compare them. Fails when batching stops saving
+ * calls, or when the batched path allocates more per state than its budget.
+ */
+@Category(Benchmark::class)
+@RunWith(RobolectricTestRunner::class)
+@Config(sdk = [34])
+class FeedbackReportingBenchmarkTest {
+
+    @get:Rule
+    val folder = TemporaryFolder()
+
+    // setStates calls made to every CountingReporter.
+    private var calls = 0L
+
+    @Test
+    fun perCallAndBatchedReporting() = runTest {
+        for (size in SIZES) {
+            calls = 0
+            val perCall = measure(size, WORK_PER_SIZE) { run ->
+                for (i in 0 until size) {
+                    reportPerCall(::CountingReporter, state(i, run))
+                }
+            }
+            report("per-call", size, perCall, "${calls / perCall.runs} calls/burst")
+            assertEquals(size.toLong(), calls / perCall.runs)
+
+            calls = 0
+            val fake = CountingReporter()
+            val reporter = EnterpriseReporter(
+                fake,
+                FeedbackOutbox(File(folder.newFolder(), "feedback.outbox")),
+                backgroundScope,
+                ioDispatcher = StandardTestDispatcher(testScheduler),
+            )
+            val result = measure(size, WORK_PER_SIZE) { run ->
+                reporter.batch {
+                    for (i in 0 until size) {
+                        reporter.report(state(i, run))
+                    }
+                }
+                settle()
+            }
+            val callsPerBurst = calls / result.runs
+            report("batched", size, result, "$callsPerBurst calls/burst")
+
+            assertEquals(size, fake.keyedStates.size)
+            assertEquals(0, reporter.queueDepth)
+            // Every state of a burst shares its call, until a call gets too large.
+            val expectedCalls = if (size <= SINGLE_CALL_SIZE) 1 else size / SINGLE_CALL_SIZE + 1
+            assertTrue(
+                "$size states: $callsPerBurst calls per burst, expected at most $expectedCalls",
+                callsPerBurst <= expectedCalls
+            )
+            assertTrue(
+                "$size states: ${result.bytesPerRun / size} bytes per state, " +
+                    "budget $BATCHED_BYTES_PER_STATE",
+                result.bytesPerRun / size <= BATCHED_BYTES_PER_STATE
+            )
+        }
+    }
+
+    private fun state(index: Int, run: Int): KeyedAppState = KeyedAppState.builder()
+        .setKey("key$index")
+        .setSeverity(KeyedAppState.SEVERITY_INFO)
+        .setMessage("Value is $run")
+        .setData("$run")
+        .build()
+
+    /**
+     * Counts the calls made to it in [calls].
+     */
+    private inner class CountingReporter : FakeKeyedAppStatesReporter() {
+
+        override fun setStates(
+            states: Collection<KeyedAppState>,
+            callback: KeyedAppStatesCallback?
+        ) {
+            calls++
+            super.setStates(states, callback)
+        }
+    }
+
+    private companion object {
+        val SIZES = intArrayOf(1, 10, 100, 1_000, 10_000)
+
+        // States sent per size and measurement, so that small sizes run more bursts.
+        const val WORK_PER_SIZE = 20_000
+
+        // States of this test fitting in a single call, with room to spare.
+        const val SINGLE_CALL_SIZE = 150
+
+        // Budget, with headroom. Each state is written to the outbox and back.
+        const val BATCHED_BYTES_PER_STATE = 16_384L
+    }
+}
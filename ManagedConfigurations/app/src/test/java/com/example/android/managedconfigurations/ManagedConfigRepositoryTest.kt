@@ -0,0 +1,144 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.managedconfigurations
+
+import android.content.Context
+import android.os.Bundle
+import android.os.Parcelable
+import com.example.android.common.logger.Log
+import com.example.android.common.logger.LogNode
+import com.example.android.common.logger.LogRecord
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotSame
+import org.junit.Assert.assertSame
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.RuntimeEnvironment
+import org.robolectric.annotation.Config
+
+/**
+ * Resolves restrictions through [ManagedConfigRepository], without a RestrictionsManager.
+ */
+@RunWith(RobolectricTestRunner::class)
+@Config(sdk = [34])
+class ManagedConfigRepositoryTest {
+
+    private lateinit var context: Context
+
+    // Copies of the records logged, with their messages left unbuilt.
+    private val records = ArrayList<LogRecord>()
+
+    @Before
+    fun setUp() {
+        context = RuntimeEnvironment.getApplication()
+        Log.setLevelFilter(null)
+        Log.setLogNode(object : LogNode {
+            override fun println(priority: Int, tag: String?, msg: String?, tr: Throwable?) {
+            }
+
+            override fun println(record: LogRecord) {
+                records.add(LogRecord.obtain().apply { copyFrom(record) })
+            }
+        })
+    }
+
+    @After
+    fun tearDown() {
+        Log.setLogNode(null)
+    }
+
+    @Test
+    fun logsTheKeysWhichChanged() {
+        val repository = newRepository()
+        repository.resolve(restrictions(number = 7))
+        records.clear()
+
+        repository.resolve(restrictions(number = 8))
+
+        // Built after resolve returned, the way an asynchronous node builds them.
+        val changes = records
+            .filter { it.tag == TAG }
+            .map { it.message.toString() }
+        assertEquals(listOf("changed: [${ManagedConfig.KEY_NUMBER}]"), changes)
+    }
+
+    @Test
+    fun skipsIncompleteItems() {
+        val restrictions = restrictions(number = 7)
+        restrictions.putParcelableArray(
+            ManagedConfig.KEY_ITEMS,
+            arrayOf<Parcelable>(item("a", "1"), item("b", null), item("c", "3"))
+        )
+
+        val items = newRepository().resolve(restrictions).items!!
+
+        assertEquals(3, items.size)
+        assertEquals(2, items.completeCount)
+        assertEquals(ManagedConfig.Item("a", "1"), items.getComplete(0))
+        assertEquals(ManagedConfig.Item("c", "3"), items.getComplete(1))
+    }
+
+    @Test
+    fun keepsTheItemsWhichDidNotChange() {
+        val repository = newRepository()
+        val first = repository.resolve(restrictions(number = 7, item("a", "1")))
+
+        // Equal items in distinct bundles, as RestrictionsManager returns new ones each time.
+        val second = repository.resolve(restrictions(number = 8, item("a", "1")))
+        val third = repository.resolve(restrictions(number = 8, item("a", "2")))
+
+        assertSame(first.items, second.items)
+        assertNotSame(second.items, third.items)
+    }
+
+    private fun newRepository(): ManagedConfigRepository {
+        context.noBackupFilesDir.resolve("restrictions.snapshot").delete()
+        return ManagedConfigRepository(context, CoroutineScope(Dispatchers.Unconfined))
+    }
+
+    private fun restrictions(number: Int): Bundle {
+        val restrictions = Bundle()
+        restrictions.putBoolean(ManagedConfig.KEY_CAN_SAY_HELLO, true)
+        restrictions.putString(ManagedConfig.KEY_MESSAGE, "Hello")
+        restrictions.putInt(ManagedConfig.KEY_NUMBER, number)
+        return restrictions
+    }
+
+    private fun restrictions(number: Int, vararg items: Bundle): Bundle {
+        val restrictions = restrictions(number)
+        restrictions.putParcelableArray(ManagedConfig.KEY_ITEMS, arrayOf<Parcelable>(*items))
+        return restrictions
+    }
+
+    private fun item(key: String, value: String?): Bundle {
+        val item = Bundle()
+        item.putString(ManagedConfig.KEY_ITEM_KEY, key)
+        if (value != null) {
+            item.putString(ManagedConfig.KEY_ITEM_VALUE, value)
+        }
+        return item
+    }
+
+    private companion object {
+        const val TAG = "ManagedConfigRepository"
+    }
+}
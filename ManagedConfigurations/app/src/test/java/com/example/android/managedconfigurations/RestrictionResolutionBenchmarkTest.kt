@@ -0,0 +1,198 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.managedconfigurations
+
+import android.content.Context
+import android.os.Bundle
+import android.os.Parcelable
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNotSame
+import org.junit.Assert.assertSame
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.experimental.categories.Category
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.RuntimeEnvironment
+import org.robolectric.annotation.Config
+
+/**
+ * Resolves synthetic restrictions of increasing size the way [ManagedConfigRepository] does, and
+ * fails when the time or memory allocated per entry goes over budget.
+ *
+ * Each size is measured twice: restrictions which changed since the last resolution, which are
+ * compared, decoded and saved, and restrictions which didn't, which are only compared. Every item
+ * of the generated bundle_array holds nested bundles [NESTING_DEPTH] deep, and a nested
+ * bundle_array, to exercise the recursive parts of comparing and saving.
+ *
+ * The results are printed, one line per size, to compare runs. The budgets are checked by the
+ * [Benchmark] tests, the others check the synthetic restrictions resolve as they should.
+ */
+@RunWith(RobolectricTestRunner::class)
+@Config(sdk = [34])
+class RestrictionResolutionBenchmarkTest {
+
+    private lateinit var context: Context
+
+    @Before
+    fun setUp() {
+        context = RuntimeEnvironment.getApplication()
+    }
+
+    @Test
+    fun decodesSyntheticRestrictions() {
+        val repository = newRepository()
+        val config = repository.resolve(restrictions(100, variant = 0))
+
+        assertEquals(7, config.number)
+        assertEquals("Captain", config.rank)
+        assertEquals(setOf("read", "execute"), config.approvals)
+        assertTrue("execute" in config.approvals)
+        assertFalse("write" in config.approvals)
+        val items = config.items!!
+        assertEquals(100, items.size)
+        assertEquals(ManagedConfig.Item("key42", "value42-0"), items.findByKey("key42"))
+        assertEquals(100, items.asSequence().count())
+    }
+
+    @Test
+    fun unchangedRestrictionsReuseTheConfig() {
+        val repository = newRepository()
+        val first = repository.resolve(restrictions(100, variant = 0))
+
+        assertSame(first, repository.resolve(restrictions(100, variant = 0)))
+        assertNotSame(first, repository.resolve(restrictions(100, variant = 1)))
+    }
+
+    @Test
+    @Category(Benchmark::class)
+    fun changedRestrictionsStayWithinBudget() {
+        for (size in SIZES) {
+            val repository = newRepository()
+            val bundles = arrayOf(restrictions(size, variant = 0), restrictions(size, variant = 1))
+            val result = measure(size, WORK_PER_SIZE, MIN_RUNS) { i ->
+                repository.resolve(bundles[i % 2])
+            }
+            report("changed", size, result)
+            assertWithinBudget("changed", size, result, CHANGED_NANOS_PER_ENTRY,
+                CHANGED_BYTES_PER_ENTRY)
+        }
+    }
+
+    @Test
+    @Category(Benchmark::class)
+    fun unchangedRestrictionsStayWithinBudget() {
+        for (size in SIZES) {
+            val repository = newRepository()
+            repository.resolve(restrictions(size, variant = 0))
+            // Equal content in a distinct bundle, as RestrictionsManager returns new ones each time.
+            val current = restrictions(size, variant = 0)
+            val result = measure(size, WORK_PER_SIZE, MIN_RUNS) { repository.resolve(current) }
+            report("unchanged", size, result)
+            assertWithinBudget("unchanged", size, result, UNCHANGED_NANOS_PER_ENTRY,
+                UNCHANGED_BYTES_PER_ENTRY)
+        }
+    }
+
+    private fun newRepository(): ManagedConfigRepository {
+        context.noBackupFilesDir.resolve("restrictions.snapshot").delete()
+        return ManagedConfigRepository(context, CoroutineScope(Dispatchers.Unconfined))
+    }
+
+    private fun assertWithinBudget(
+        name: String,
+        size: Int,
+        result: Measurement,
+        nanosPerEntry: Long,
+        bytesPerEntry: Long
+    ) {
+        // Fixed costs dominate small sizes, so they get the budget of BUDGET_FLOOR entries.
+        val entries = maxOf(size, BUDGET_FLOOR).toLong()
+        assertTrue(
+            "$name, $size entries: ${result.nanosPerRun} ns per resolution, " +
+                "budget ${entries * nanosPerEntry}",
+            result.nanosPerRun <= entries * nanosPerEntry
+        )
+        assertTrue(
+            "$name, $size entries: ${result.bytesPerRun} bytes per resolution, " +
+                "budget ${entries * bytesPerEntry}",
+            result.bytesPerRun <= entries * bytesPerEntry
+        )
+    }
+
+    /**
+     * Returns restrictions holding [size] items. Restrictions of different variants differ in
+     * the value of every item.
+     */
+    private fun restrictions(size: Int, variant: Int): Bundle {
+        val restrictions = Bundle()
+        restrictions.putBoolean(ManagedConfig.KEY_CAN_SAY_HELLO, true)
+        restrictions.putString(ManagedConfig.KEY_MESSAGE, "Hello")
+        restrictions.putInt(ManagedConfig.KEY_NUMBER, 7)
+        restrictions.putString(ManagedConfig.KEY_RANK, "Captain")
+        restrictions.putStringArray(ManagedConfig.KEY_APPROVALS, arrayOf("read", "execute"))
+        restrictions.putParcelableArray(
+            ManagedConfig.KEY_ITEMS,
+            Array<Parcelable>(size) { item(it, variant) }
+        )
+        return restrictions
+    }
+
+    private fun item(index: Int, variant: Int): Bundle {
+        val item = Bundle()
+        item.putString(ManagedConfig.KEY_ITEM_KEY, "key$index")
+        item.putString(ManagedConfig.KEY_ITEM_VALUE, "value$index-$variant")
+        var nested = item
+        repeat(NESTING_DEPTH) { depth ->
+            val child = Bundle()
+            child.putInt("depth", depth)
+            nested.putBundle("nested", child)
+            nested = child
+        }
+        nested.putParcelableArray(
+            "tags",
+            arrayOf<Parcelable>(
+                Bundle().apply { putString("tag", "a") },
+                Bundle().apply { putString("tag", "b") },
+            )
+        )
+        return item
+    }
+
+    companion object {
+        private val SIZES = intArrayOf(10, 100, 1_000, 10_000, 100_000)
+        private const val NESTING_DEPTH = 3
+
+        // Entries resolved per size and measurement, so that small sizes run more resolutions.
+        // The largest size runs once to warm up and once measured, as each run allocates
+        // hundreds of MB.
+        private const val WORK_PER_SIZE = 50_000
+        private const val MIN_RUNS = 1
+        private const val BUDGET_FLOOR = 1_000
+
+        // Budgets, with headroom for slow build machines. Changed restrictions are compared,
+        // decoded and written to the snapshot file; unchanged ones are only compared.
+        private const val CHANGED_NANOS_PER_ENTRY = 20_000L
+        private const val CHANGED_BYTES_PER_ENTRY = 4_096L
+        private const val UNCHANGED_NANOS_PER_ENTRY = 5_000L
+        private const val UNCHANGED_BYTES_PER_ENTRY = 512L
+    }
+}
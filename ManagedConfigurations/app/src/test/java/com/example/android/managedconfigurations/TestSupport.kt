@@ -0,0 +1,109 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.managedconfigurations
+
+import androidx.enterprise.feedback.KeyedAppState
+import androidx.enterprise.feedback.KeyedAppStatesReporter
+import java.lang.management.ManagementFactory
+import java.util.Locale
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.test.TestScope
+import kotlinx.coroutines.test.advanceTimeBy
+import kotlinx.coroutines.test.runCurrent
+
+// Longer than any wait of EnterpriseReporter: the batching window, backoffs, answer timeouts.
+private const val SETTLE_MILLIS = 60_000L
+
+// Bounds on the measured runs of a size, however little or much work each of them does.
+private const val MIN_RUNS = 4
+private const val MAX_RUNS = 200
+
+/**
+ * Lets the flusher of an [EnterpriseReporter] living in the background scope run until it has
+ * nothing left to do.
+ */
+@OptIn(ExperimentalCoroutinesApi::class)
+internal fun TestScope.settle() {
+    advanceTimeBy(SETTLE_MILLIS)
+    runCurrent()
+}
+
+/**
+ * Sends the state the way `enterpriseFeedback` did before [EnterpriseReporter]: through a reporter
+ * of its own, created for it, with a `setStates` call for it alone. The baseline of the feedback
+ * benchmark.
+ */
+internal fun reportPerCall(newReporter: () -> KeyedAppStatesReporter, state: KeyedAppState) {
+    val reporter = newReporter()
+    val list: MutableList<KeyedAppState> = ArrayList()
+    list.add(state)
+    reporter.setStates(list, Callback())
+}
+
+/**
+ * Time and memory taken by a run of a benchmark, on average. [runs] counts the warm-up runs too.
+ */
+internal class Measurement(val runs: Int, val nanosPerRun: Long, val bytesPerRun: Long)
+
+/**
+ * Runs [block] on [size] items about [work] / [size] times, at least [minRuns] times, to warm up,
+ * then as many times again while measuring the time it takes and the memory the calling thread
+ * allocates. Each run is given its own number, so that runs on data derived from it don't repeat
+ * each other.
+ */
+internal inline fun measure(
+    size: Int,
+    work: Int,
+    minRuns: Int = MIN_RUNS,
+    block: (Int) -> Unit
+): Measurement {
+    val runs = (work / size).coerceIn(minRuns, MAX_RUNS)
+    repeat(runs) { block(runs + it) }
+
+    val threadId = Thread.currentThread().id
+    val bytesBefore = allocatedBytes(threadId)
+    val nanosBefore = System.nanoTime()
+    repeat(runs) { block(it) }
+    val nanos = System.nanoTime() - nanosBefore
+    val bytes = allocatedBytes(threadId) - bytesBefore
+    return Measurement(runs * 2, nanos / runs, bytes / runs)
+}
+
+internal fun allocatedBytes(threadId: Long): Long {
+    val threads = ManagementFactory.getThreadMXBean() as com.sun.management.ThreadMXBean
+    return threads.getThreadAllocatedBytes(threadId)
+}
+
+/**
+ * Prints the measurement of a run on [size] items, and [extra] details, on one line to compare
+ * with other runs.
+ */
+internal fun report(name: String, size: Int, measurement: Measurement, extra: String = "") {
+    println(
+        String.format(
+            Locale.US,
+            "%-9s %7d items: %10.3f ms/run %12.0f items/s %12d B/run %8.1f B/item %s",
+            name,
+            size,
+            measurement.nanosPerRun / 1_000_000.0,
+            size * 1_000_000_000.0 / maxOf(1L, measurement.nanosPerRun),
+            measurement.bytesPerRun,
+            measurement.bytesPerRun.toDouble() / size,
+            extra,
+        )
+    )
+}
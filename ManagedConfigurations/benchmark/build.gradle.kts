@@ -0,0 +1,47 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+// JVM benchmarks for the logger in com.example.android.common.logger, no device needed.
+// Run with ./gradlew :benchmark:jmh, results end up in benchmark/build/results/jmh.
+plugins {
+    `java-library`
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+sourceSets {
+    main {
+        java {
+            // The logger is plain Java apart from its views, so it is compiled straight from the
+            // app's sources, against the stand-in for android.util.Log in src/main/java.
+            srcDir("../app/src/main/java")
+            include("android/util/**")
+            include("com/example/android/common/logger/**")
+            exclude("**/LogFragment.java", "**/LogListView.java", "**/LogView.java")
+        }
+    }
+}
+
+jmh {
+    jmhVersion = libs.versions.jmh.get()
+    // Reports gc.alloc.rate.norm, the bytes allocated per operation.
+    profilers = listOf("gc")
+    resultFormat = "JSON"
+}
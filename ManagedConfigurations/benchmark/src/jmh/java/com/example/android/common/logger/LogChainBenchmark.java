@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.common.logger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link Log#println} through a chain of LogNodes. Throughput and latency percentiles
+ * come from the two benchmark modes, bytes allocated per call from the gc profiler configured in
+ * build.gradle.kts (gc.alloc.rate.norm).
+ *
+ * <p>A chain of depth n is made of n - 2 {@link LogWrapper}s, a {@link MessageOnlyLogFilter} and
+ * a headless node which reads the record the way an on-screen node would, but displays nothing.
+ * Shorter chains drop the wrappers, then the filter.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LogChainBenchmark {
+
+    private static final String TAG = "LogChainBenchmark";
+    private static final String MESSAGE = "key: can_say_hello";
+
+    @Param({"1", "2", "4", "8"})
+    public int chainDepth;
+
+    @Param({"false", "true"})
+    public boolean withThrowable;
+
+    private Throwable mThrowable;
+
+    /**
+     * End of the chain. Reads everything a display node would, without displaying it.
+     */
+    static final class HeadlessLogNode implements LogNode {
+        private final Blackhole mBlackhole;
+
+        HeadlessLogNode(Blackhole blackhole) {
+            mBlackhole = blackhole;
+        }
+
+        @Override
+        public void println(int priority, String tag, String msg, Throwable tr) {
+            mBlackhole.consume(priority);
+            mBlackhole.consume(tag);
+            mBlackhole.consume(msg);
+            mBlackhole.consume(tr);
+        }
+
+        @Override
+        public void println(LogRecord record) {
+            mBlackhole.consume(record.getPriority());
+            mBlackhole.consume(record.getTag());
+            CharSequence msg = record.getMessage();
+            mBlackhole.consume(msg == null ? 0 : msg.length());
+            mBlackhole.consume(record.getThrowable());
+        }
+    }
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        mThrowable = withThrowable ? new IllegalStateException("Restrictions unavailable") : null;
+
+        LogNode node = new HeadlessLogNode(blackhole);
+        if (chainDepth >= 2) {
+            node = new MessageOnlyLogFilter(node);
+        }
+        for (int i = 2; i < chainDepth; i++) {
+            LogWrapper wrapper = new LogWrapper();
+            wrapper.setNext(node);
+            node = wrapper;
+        }
+        Log.setLevelFilter(null);
+        Log.setLogNode(node);
+    }
+
+    @TearDown
+    public void tearDown() {
+        Log.setLogNode(null);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void println_1Thread() {
+        Log.println(Log.DEBUG, TAG, MESSAGE, mThrowable);
+    }
+
+    @Benchmark
+    @Threads(2)
+    public void println_2Threads() {
+        Log.println(Log.DEBUG, TAG, MESSAGE, mThrowable);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void println_4Threads() {
+        Log.println(Log.DEBUG, TAG, MESSAGE, mThrowable);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void println_8Threads() {
+        Log.println(Log.DEBUG, TAG, MESSAGE, mThrowable);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void println_16Threads() {
+        Log.println(Log.DEBUG, TAG, MESSAGE, mThrowable);
+    }
+}
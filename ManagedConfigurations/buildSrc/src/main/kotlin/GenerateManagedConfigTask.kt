@@ -0,0 +1,278 @@
+/*
+ * Copyright 2026 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import javax.xml.parsers.DocumentBuilderFactory
+import org.gradle.api.DefaultTask
+import org.gradle.api.GradleException
+import org.gradle.api.file.DirectoryProperty
+import org.gradle.api.file.RegularFileProperty
+import org.gradle.api.provider.Property
+import org.gradle.api.tasks.Input
+import org.gradle.api.tasks.InputFile
+import org.gradle.api.tasks.OutputDirectory
+import org.gradle.api.tasks.PathSensitive
+import org.gradle.api.tasks.PathSensitivity
+import org.gradle.api.tasks.TaskAction
+import org.w3c.dom.Element
+
+/**
+ * Compiles the restrictions schema into ManagedConfig, a data class holding one typed property per
+ * restriction, with the defaults of the schema and a decoder which reads a restrictions Bundle in
+ * a single pass over its keys. Multi-select values are held as a Selection, and bundle arrays are
+ * left undecoded, see BundleArray.
+ */
+abstract class GenerateManagedConfigTask : DefaultTask() {
+
+    @get:InputFile
+    @get:PathSensitive(PathSensitivity.RELATIVE)
+    abstract val schema: RegularFileProperty
+
+    @get:Input
+    abstract val packageName: Property<String>
+
+    @get:OutputDirectory
+    abstract val outputDirectory: DirectoryProperty
+
+    private class Restriction(
+        val key: String,
+        val type: String,
+        val defaultValue: String?,
+        val entryValues: String?,
+        val children: List<Restriction>,
+    ) {
+        val property = key.split('_').mapIndexed { i, part ->
+            if (i == 0) part else part.replaceFirstChar { it.uppercase() }
+        }.joinToString("")
+        val constant = "KEY_" + key.uppercase()
+    }
+
+    @TaskAction
+    fun generate() {
+        val factory = DocumentBuilderFactory.newInstance().apply { isNamespaceAware = true }
+        val root = factory.newDocumentBuilder().parse(schema.get().asFile).documentElement
+        val restrictions = parse(root)
+
+        val pkg = packageName.get()
+        val file = outputDirectory.get().asFile.resolve(pkg.replace('.', '/') + "/ManagedConfig.kt")
+        file.parentFile.mkdirs()
+        file.writeText(render(pkg, restrictions))
+    }
+
+    private fun parse(parent: Element): List<Restriction> {
+        val restrictions = ArrayList<Restriction>()
+        val nodes = parent.childNodes
+        for (i in 0 until nodes.length) {
+            val element = nodes.item(i) as? Element ?: continue
+            if (element.tagName != "restriction") {
+                continue
+            }
+            restrictions.add(
+                Restriction(
+                    key = element.getAttributeNS(ANDROID_NS, "key"),
+                    type = element.getAttributeNS(ANDROID_NS, "restrictionType"),
+                    defaultValue = element.getAttributeNS(ANDROID_NS, "defaultValue")
+                        .takeIf { it.isNotEmpty() },
+                    entryValues = element.getAttributeNS(ANDROID_NS, "entryValues")
+                        .takeIf { it.isNotEmpty() },
+                    children = parse(element),
+                )
+            )
+        }
+        return restrictions
+    }
+
+    private fun itemClass(restriction: Restriction): Restriction {
+        val item = restriction.children.singleOrNull()
+        if (item == null || item.type != "bundle") {
+            throw GradleException("${restriction.key}: a bundle_array holds exactly one bundle")
+        }
+        return item
+    }
+
+    private fun className(restriction: Restriction) =
+        restriction.property.replaceFirstChar { it.uppercase() }
+
+    private fun propertyType(restriction: Restriction): String = when (restriction.type) {
+        "bool" -> "Boolean"
+        "integer" -> "Int"
+        "string", "choice", "hidden" -> "String?"
+        "multi-select" -> "Selection"
+        "bundle_array" -> "BundleArray<${className(itemClass(restriction))}>?"
+        else -> throw GradleException(
+            "${restriction.key}: restriction type ${restriction.type} is not supported"
+        )
+    }
+
+    private fun defaultExpression(restriction: Restriction): String {
+        val value = restriction.defaultValue
+        val resource = value?.takeIf { it.startsWith("@") }?.substring(1)?.split('/', limit = 2)
+        return when (restriction.type) {
+            "bool" -> when {
+                resource != null -> "resources.getBoolean(R.bool.${resource[1]})"
+                else -> (value ?: "false").toBooleanStrict().toString()
+            }
+            "integer" -> when {
+                resource != null -> "resources.getInteger(R.integer.${resource[1]})"
+                else -> (value ?: "0").toInt().toString()
+            }
+            "string", "choice", "hidden" -> when {
+                resource != null -> "resources.getString(R.string.${resource[1]})"
+                value != null -> quote(value)
+                else -> "null"
+            }
+            "multi-select" -> when {
+                resource != null -> "${choicesExpression(restriction)}.select(resources.getStringArray(R.array.${resource[1]}))"
+                else -> "${choicesExpression(restriction)}.none"
+            }
+            else -> "null"
+        }
+    }
+
+    private fun choicesExpression(restriction: Restriction): String {
+        val values = restriction.entryValues
+        if (values == null || !values.startsWith("@array/")) {
+            throw GradleException("${restriction.key}: a multi-select needs an @array entryValues")
+        }
+        return "Selection.Choices(resources.getStringArray(R.array.${values.substringAfter('/')}))"
+    }
+
+    private fun readExpression(restriction: Restriction, bundle: String): String =
+        when (restriction.type) {
+            "bool" -> "$bundle.getBoolean(key)"
+            "integer" -> "$bundle.getInt(key)"
+            "string", "choice", "hidden" -> "$bundle.getString(key)"
+            "multi-select" -> "defaults.${restriction.property}.choices.select($bundle.getStringArray(key))"
+            else -> "decode${className(restriction)}($bundle)"
+        }
+
+    private fun render(pkg: String, restrictions: List<Restriction>): String = buildString {
+        val arrays = restrictions.filter { it.type == "bundle_array" }
+        appendLine("// Generated from ${schema.get().asFile.name} by ${this@GenerateManagedConfigTask.name}. Do not edit.")
+        appendLine("package $pkg")
+        appendLine()
+        appendLine("import android.content.res.Resources")
+        appendLine("import android.os.Bundle")
+        appendLine()
+        appendLine("/**")
+        appendLine(" * The restrictions of this app, with the defaults of the schema filled in for the ones the")
+        appendLine(" * device or profile owner didn't set.")
+        appendLine(" */")
+        appendLine("data class ManagedConfig(")
+        for (r in restrictions) {
+            appendLine("    val ${r.property}: ${propertyType(r)},")
+        }
+        appendLine(") {")
+        for (array in arrays) {
+            val item = itemClass(array)
+            appendLine()
+            appendLine("    /**")
+            appendLine("     * One entry of ${array.property}. Entries missing any of their values are skipped.")
+            appendLine("     */")
+            append("    data class ${className(item)}(")
+            append(item.children.joinToString(", ") {
+                "val ${it.property}: ${propertyType(it).removeSuffix("?")}"
+            })
+            appendLine(")")
+        }
+        appendLine()
+        appendLine("    companion object {")
+        for (r in restrictions) {
+            appendLine("        const val ${r.constant} = \"${r.key}\"")
+        }
+        for (array in arrays) {
+            val item = itemClass(array)
+            for (field in item.children) {
+                appendLine("        const val KEY_${item.key.uppercase()}_${field.key.uppercase()} = \"${field.key}\"")
+            }
+        }
+        appendLine()
+        appendLine("        /**")
+        appendLine("         * Returns the config used when no restrictions are set.")
+        appendLine("         */")
+        appendLine("        fun defaults(resources: Resources) = ManagedConfig(")
+        for (r in restrictions) {
+            appendLine("            ${r.property} = ${defaultExpression(r)},")
+        }
+        appendLine("        )")
+        appendLine()
+        appendLine("        /**")
+        appendLine("         * Reads the restrictions, keeping the values of [defaults] for the ones which aren't set.")
+        appendLine("         */")
+        appendLine("        fun decode(restrictions: Bundle?, defaults: ManagedConfig): ManagedConfig {")
+        appendLine("            if (restrictions == null || restrictions.isEmpty) {")
+        appendLine("                return defaults")
+        appendLine("            }")
+        for (r in restrictions) {
+            appendLine("            var ${r.property} = defaults.${r.property}")
+        }
+        appendLine("            for (key in restrictions.keySet()) {")
+        appendLine("                when (key) {")
+        for (r in restrictions) {
+            appendLine("                    ${r.constant} -> ${r.property} = ${readExpression(r, "restrictions")}")
+        }
+        appendLine("                }")
+        appendLine("            }")
+        appendLine("            return ManagedConfig(")
+        for (r in restrictions) {
+            appendLine("                ${r.property} = ${r.property},")
+        }
+        appendLine("            )")
+        appendLine("        }")
+        for (array in arrays) {
+            val item = itemClass(array)
+            val itemClass = className(item)
+            val itemKey = item.children.firstOrNull { it.key == "key" }
+                ?.let { "KEY_${item.key.uppercase()}_${it.key.uppercase()}" }
+            appendLine()
+            appendLine("        @Suppress(\"DEPRECATION\")")
+            appendLine("        private fun decode${className(array)}(restrictions: Bundle): BundleArray<$itemClass>? {")
+            appendLine("            val parcelables = restrictions.getParcelableArray(${array.constant})")
+            appendLine("            if (parcelables.isNullOrEmpty()) {")
+            appendLine("                return null")
+            appendLine("            }")
+            appendLine("            return BundleArray(parcelables, $itemKey, ::decode$itemClass)")
+            appendLine("        }")
+            appendLine()
+            appendLine("        private fun decode$itemClass(item: Bundle): $itemClass? {")
+            for (field in item.children) {
+                val constant = "KEY_${item.key.uppercase()}_${field.key.uppercase()}"
+                when (field.type) {
+                    "string", "choice", "hidden" ->
+                        appendLine("            val ${field.property} = item.getString($constant) ?: return null")
+                    "bool", "integer" -> {
+                        appendLine("            if (!item.containsKey($constant)) return null")
+                        val getter = if (field.type == "bool") "getBoolean" else "getInt"
+                        appendLine("            val ${field.property} = item.$getter($constant)")
+                    }
+                    else -> throw GradleException(
+                        "${field.key}: restriction type ${field.type} is not supported in a bundle"
+                    )
+                }
+            }
+            appendLine("            return $itemClass(${item.children.joinToString(", ") { it.property }})")
+            appendLine("        }")
+        }
+        appendLine("    }")
+        appendLine("}")
+    }
+
+    private fun quote(value: String) =
+        "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"").replace("$", "\\$") + "\""
+
+    private companion object {
+        const val ANDROID_NS = "http://schemas.android.com/apk/res/android"
+    }
+}
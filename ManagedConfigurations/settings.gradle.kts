@@ -21,3 +21,4 @@ dependencyResolutionManagement {
 
 rootProject.name = "Managed Configuration"
 include(":app")
+include(":benchmark")